@@ -0,0 +1,207 @@
+package dev.arthomnix.spaghettitrees.command;
+
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
+import com.mojang.brigadier.arguments.StringArgumentType;
+import dev.arthomnix.spaghettitrees.debug.FoliageBenchmark;
+import dev.arthomnix.spaghettitrees.debug.TreeBenchmark;
+import dev.arthomnix.spaghettitrees.debug.TreeSizeAnalyzer;
+import dev.arthomnix.spaghettitrees.debug.TreeStressTest;
+import dev.arthomnix.spaghettitrees.debug.TreeTraceReplay;
+import dev.arthomnix.spaghettitrees.pregen.Pregenerator;
+import dev.arthomnix.spaghettitrees.sim.TreeTraceRecorder;
+import dev.arthomnix.spaghettitrees.util.SpaghettiTreesMetrics;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.server.command.CommandManager;
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.text.LiteralText;
+import net.minecraft.util.WorldSavePath;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+
+public class SpaghettiTreesCommand {
+    // enough chunks in flight to keep every worldgen thread busy
+    private static final int DEFAULT_PREGEN_WORKERS = 2 * Runtime.getRuntime().availableProcessors();
+    private static final int DEFAULT_BENCHMARK_TREES = 2000;
+    private static final int DEFAULT_SIZE_ANALYSIS_TREES = 100000;
+    private static final int DEFAULT_FOLIAGE_BENCHMARK_LAYERS = 200000;
+
+    public static void register(CommandDispatcher<ServerCommandSource> dispatcher) {
+        dispatcher.register(CommandManager.literal("spaghettitrees")
+                .requires(source -> source.hasPermissionLevel(2))
+                .then(CommandManager.literal("stats")
+                        .executes(context -> {
+                            context.getSource().sendFeedback(new LiteralText(SpaghettiTreesMetrics.report()), false);
+                            return 1;
+                        })
+                        .then(CommandManager.literal("reset")
+                                .executes(context -> {
+                                    SpaghettiTreesMetrics.reset();
+                                    context.getSource().sendFeedback(new LiteralText("Reset SpaghettiTrees metrics"), true);
+                                    return 1;
+                                })
+                        )
+                )
+                .then(CommandManager.literal("stress")
+                        .then(CommandManager.argument("threads", IntegerArgumentType.integer(1, 256))
+                                .then(CommandManager.argument("trees", IntegerArgumentType.integer(1, 100000))
+                                        .executes(context -> runInBackground(context.getSource(), "stress test", () -> TreeStressTest.run(
+                                                IntegerArgumentType.getInteger(context, "threads"),
+                                                IntegerArgumentType.getInteger(context, "trees")
+                                        )))
+                                )
+                        )
+                )
+                .then(CommandManager.literal("bench")
+                        .executes(context -> runInBackground(context.getSource(), "benchmark", () -> TreeBenchmark.compare()))
+                        .then(CommandManager.argument("trees", IntegerArgumentType.integer(1, 100000))
+                                .executes(context -> runInBackground(context.getSource(), "benchmark", () -> TreeBenchmark.compare(IntegerArgumentType.getInteger(context, "trees"))))
+                        )
+                        .then(CommandManager.literal("foliage")
+                                .executes(context -> runInBackground(context.getSource(), "foliage benchmark", () -> FoliageBenchmark.run(DEFAULT_FOLIAGE_BENCHMARK_LAYERS)))
+                                .then(CommandManager.argument("layers", IntegerArgumentType.integer(1, 10000000))
+                                        .executes(context -> runInBackground(context.getSource(), "foliage benchmark", () -> FoliageBenchmark.run(IntegerArgumentType.getInteger(context, "layers"))))
+                                )
+                        )
+                        .then(CommandManager.literal("save")
+                                .executes(context -> runInBackground(context.getSource(), "benchmark", () -> TreeBenchmark.saveBaseline(DEFAULT_BENCHMARK_TREES)))
+                                .then(CommandManager.argument("trees", IntegerArgumentType.integer(1, 100000))
+                                        .executes(context -> runInBackground(context.getSource(), "benchmark", () -> TreeBenchmark.saveBaseline(IntegerArgumentType.getInteger(context, "trees"))))
+                                )
+                        )
+                )
+                .then(CommandManager.literal("sizes")
+                        .executes(context -> analyzeSizes(context.getSource(), DEFAULT_SIZE_ANALYSIS_TREES, Runtime.getRuntime().availableProcessors()))
+                        .then(CommandManager.argument("trees", IntegerArgumentType.integer(1, 10000000))
+                                .executes(context -> analyzeSizes(context.getSource(), IntegerArgumentType.getInteger(context, "trees"), Runtime.getRuntime().availableProcessors()))
+                                .then(CommandManager.argument("threads", IntegerArgumentType.integer(1, 256))
+                                        .executes(context -> analyzeSizes(context.getSource(), IntegerArgumentType.getInteger(context, "trees"), IntegerArgumentType.getInteger(context, "threads")))
+                                )
+                        )
+                )
+                .then(CommandManager.literal("trace")
+                        .then(CommandManager.literal("start")
+                                .then(CommandManager.argument("name", StringArgumentType.word())
+                                        .executes(context -> startTrace(context.getSource(), StringArgumentType.getString(context, "name")))
+                                )
+                        )
+                        .then(CommandManager.literal("stop")
+                                .executes(context -> stopTrace(context.getSource()))
+                        )
+                        .then(CommandManager.literal("replay")
+                                .then(CommandManager.argument("name", StringArgumentType.word())
+                                        .executes(context -> replayTrace(context.getSource(), StringArgumentType.getString(context, "name"), 5))
+                                        .then(CommandManager.argument("iterations", IntegerArgumentType.integer(0, 1000))
+                                                .executes(context -> replayTrace(context.getSource(), StringArgumentType.getString(context, "name"), IntegerArgumentType.getInteger(context, "iterations")))
+                                        )
+                                )
+                        )
+                )
+                .then(CommandManager.literal("pregen")
+                        .then(CommandManager.argument("radius", IntegerArgumentType.integer(0, 1000))
+                                .executes(context -> pregen(context.getSource(), IntegerArgumentType.getInteger(context, "radius"), DEFAULT_PREGEN_WORKERS))
+                                .then(CommandManager.argument("workers", IntegerArgumentType.integer(1, 1024))
+                                        .executes(context -> pregen(context.getSource(), IntegerArgumentType.getInteger(context, "radius"), IntegerArgumentType.getInteger(context, "workers")))
+                                )
+                        )
+                        .then(CommandManager.literal("resume")
+                                .executes(context -> resumePregen(context.getSource(), DEFAULT_PREGEN_WORKERS))
+                                .then(CommandManager.argument("workers", IntegerArgumentType.integer(1, 1024))
+                                        .executes(context -> resumePregen(context.getSource(), IntegerArgumentType.getInteger(context, "workers")))
+                                )
+                        )
+                        .then(CommandManager.literal("stop")
+                                .executes(context -> {
+                                    context.getSource().sendFeedback(new LiteralText(Pregenerator.stop()), true);
+                                    return 1;
+                                })
+                        )
+                )
+        );
+    }
+
+    private static Path getTracePath(ServerCommandSource source, String name) throws IOException {
+        Path directory = source.getServer().getSavePath(WorldSavePath.ROOT).resolve("spaghettitrees_traces");
+        Files.createDirectories(directory);
+        return directory.resolve(name + ".sttrace");
+    }
+
+    private static int startTrace(ServerCommandSource source, String name) {
+        try {
+            Path path = getTracePath(source, name);
+            TreeTraceRecorder.start(path);
+            source.sendFeedback(new LiteralText("Recording spaghettitrees trees to " + path), true);
+            return 1;
+        } catch (IOException | IllegalStateException e) {
+            source.sendError(new LiteralText("Couldn't start recording: " + e.getMessage()));
+            return 0;
+        }
+    }
+
+    private static int stopTrace(ServerCommandSource source) {
+        try {
+            source.sendFeedback(new LiteralText("Recorded " + TreeTraceRecorder.stop() + " trees"), true);
+            return 1;
+        } catch (IOException | IllegalStateException e) {
+            source.sendError(new LiteralText("Couldn't stop recording: " + e.getMessage()));
+            return 0;
+        }
+    }
+
+    private static int replayTrace(ServerCommandSource source, String name, int iterations) {
+        try {
+            Path path = getTracePath(source, name);
+            return runInBackground(source, "trace replay", () -> TreeTraceReplay.run(path, iterations));
+        } catch (IOException e) {
+            source.sendError(new LiteralText("Couldn't find the trace: " + e.getMessage()));
+            return 0;
+        }
+    }
+
+    private static int analyzeSizes(ServerCommandSource source, int trees, int threads) {
+        return runInBackground(source, "tree size analysis", () -> TreeSizeAnalyzer.run(trees, threads, FabricLoader.getInstance().getGameDir(), "spaghettitrees-tree-sizes"));
+    }
+
+    private static int pregen(ServerCommandSource source, int radius, int workers) {
+        source.sendFeedback(new LiteralText(Pregenerator.start(source, radius, workers)), true);
+        return 1;
+    }
+
+    private static int resumePregen(ServerCommandSource source, int workers) {
+        try {
+            source.sendFeedback(new LiteralText(Pregenerator.resume(source, workers)), true);
+            return 1;
+        } catch (IOException e) {
+            source.sendError(new LiteralText("Couldn't read the pregen checkpoint: " + e.getMessage()));
+            return 0;
+        }
+    }
+
+    // Runs a long task off the server thread and reports its result back to the command source
+    static int runInBackground(ServerCommandSource source, String name, Callable<String> task) {
+        Thread thread = new Thread(() -> {
+            String message;
+            boolean success;
+            try {
+                message = task.call();
+                success = true;
+            } catch (Exception e) {
+                message = "SpaghettiTrees " + name + " failed: " + e;
+                success = false;
+            }
+            String finalMessage = message;
+            boolean finalSuccess = success;
+            source.getServer().execute(() -> {
+                if (finalSuccess) source.sendFeedback(new LiteralText(finalMessage), true);
+                else source.sendError(new LiteralText(finalMessage));
+            });
+        }, "SpaghettiTrees " + name);
+        thread.setDaemon(true);
+        thread.start();
+        source.sendFeedback(new LiteralText("Started SpaghettiTrees " + name), true);
+        return 1;
+    }
+}
@@ -0,0 +1,112 @@
+package dev.arthomnix.spaghettitrees.config;
+
+import dev.arthomnix.spaghettitrees.util.StartupTimer;
+import net.fabricmc.loader.api.FabricLoader;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/*
+
+    Settings from config/spaghettitrees.properties. The file is read once, the first time any setting is needed, and a default file is written if there isn't one.
+    Everything here is final so worldgen threads can read it freely.
+
+*/
+public class SpaghettiTreesConfig {
+    private static final Logger LOGGER = LogManager.getLogger("SpaghettiTrees");
+    private static final String FILE_NAME = "spaghettitrees.properties";
+    private static final String DEFAULTS = """
+            # SpaghettiTrees settings. Changes take effect after a restart.
+
+            # Leave out leaves that are completely surrounded by the same tree's leaves and logs and aren't needed to keep other leaves from decaying
+            hollow_canopy=false
+
+            # Place vines, beehives and other tree decorations when a chunk first ticks near a player instead of during chunk generation
+            lazy_decoration=false
+
+            # Most beehives and bees trees can generate in each 64x64 block region. Further hives aren't placed, and hives past the bee limit are left empty. 0 means no limit.
+            max_hives_per_region=0
+            max_bees_per_region=0
+
+            # Add the bees to generated beehives when the chunk first ticks near a player instead of during chunk generation
+            lazy_bees=false
+
+            # Generate every spaghettitrees tree a few thousand times on a background thread after the server starts, so tree generation is already JIT-compiled when players start exploring
+            jit_warmup=false
+
+            # Generate the trunks and leaves of each chunk's spaghettitrees trees on background threads while its other features are placed. Trees are generated from seeds of their own, so they differ from the trees the world would otherwise get.
+            shape_prefetch=false
+
+            # Hold back the light checks for each block a tree places until the whole tree is placed, then queue one per position that changed
+            deferred_tree_lighting=false
+
+            # In jungles, bamboo jungles and dark forests, skip tree attempts closer to a spaghetti tree already placed in the chunk than its branches reach, up to this many blocks. 0 turns it off.
+            tree_spacing=0
+            """;
+
+    public static final boolean HOLLOW_CANOPY;
+    public static final boolean LAZY_DECORATION;
+    public static final boolean SHAPE_PREFETCH;
+    public static final int MAX_HIVES_PER_REGION;
+    public static final int MAX_BEES_PER_REGION;
+    public static final boolean LAZY_BEES;
+    public static final boolean JIT_WARMUP;
+    public static final boolean DEFERRED_TREE_LIGHTING;
+    public static final int TREE_SPACING;
+
+    static {
+        StartupTimer.begin("config");
+        Properties properties = load(FabricLoader.getInstance().getConfigDir().resolve(FILE_NAME), DEFAULTS);
+        HOLLOW_CANOPY = getBoolean(properties, "hollow_canopy", false);
+        LAZY_DECORATION = getBoolean(properties, "lazy_decoration", false);
+        SHAPE_PREFETCH = getBoolean(properties, "shape_prefetch", false);
+        MAX_HIVES_PER_REGION = getInt(properties, "max_hives_per_region", 0);
+        MAX_BEES_PER_REGION = getInt(properties, "max_bees_per_region", 0);
+        LAZY_BEES = getBoolean(properties, "lazy_bees", false);
+        JIT_WARMUP = getBoolean(properties, "jit_warmup", false);
+        DEFERRED_TREE_LIGHTING = getBoolean(properties, "deferred_tree_lighting", false);
+        TREE_SPACING = getInt(properties, "tree_spacing", 0);
+        StartupTimer.end();
+    }
+
+    // Reads a properties file from the config folder, first writing the given defaults to it if it doesn't exist
+    static Properties load(Path path, String defaults) {
+        Properties properties = new Properties();
+        try {
+            if (!Files.exists(path)) {
+                Files.createDirectories(path.getParent());
+                try (Writer writer = Files.newBufferedWriter(path)) {
+                    writer.write(defaults);
+                }
+            }
+            try (Reader reader = Files.newBufferedReader(path)) {
+                properties.load(reader);
+            }
+        } catch (IOException e) {
+            LOGGER.error("Couldn't read {}, using default settings", path, e);
+        }
+        return properties;
+    }
+
+    private static boolean getBoolean(Properties properties, String key, boolean defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null ? defaultValue : Boolean.parseBoolean(value.trim());
+    }
+
+    private static int getInt(Properties properties, String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        if (value == null) return defaultValue;
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            LOGGER.error("Invalid value '{}' for {}, using {}", value, key, defaultValue);
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package dev.arthomnix.spaghettitrees.config;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import dev.arthomnix.spaghettitrees.placement.TreeDensityPlacementModifier;
+import dev.arthomnix.spaghettitrees.util.RegistryUtil;
+import dev.arthomnix.spaghettitrees.util.StartupTimer;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.util.Identifier;
+import net.minecraft.world.gen.feature.PlacedFeature;
+import net.minecraft.world.gen.feature.TreeFeatureConfig;
+import net.minecraft.world.gen.placementmodifier.PlacementModifier;
+import net.minecraft.world.gen.placementmodifier.SquarePlacementModifier;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.*;
+
+/*
+
+    Per-feature limits from config/spaghettitrees-budgets.properties, for trading tree density and size for chunk generation speed.
+    Like SpaghettiTreesConfig, the file is read once and everything in it is immutable afterwards, so worldgen threads can read it freely.
+    Density multipliers are applied to placed features as they are registered, so they must be known before BetterTreesPlacedFeatures is loaded.
+
+*/
+public class TreeBudgets {
+    private static final Logger LOGGER = LogManager.getLogger("SpaghettiTrees");
+    private static final String FILE_NAME = "spaghettitrees-budgets.properties";
+    private static final String DEFAULTS = """
+            # SpaghettiTrees tree budgets. Changes take effect after a restart, and only affect chunks generated afterwards.
+            # Nothing is limited by default; uncomment and change the lines below to use them.
+
+            # density.<placed feature>: multiply how many tree attempts a biome's tree feature makes per chunk (e.g. 0.5 for half as many trees)
+            # The placed features and the biomes they generate in are:
+            #   placed_better_forest_trees: forest                          placed_better_flower_forest_trees: flower forest
+            #   placed_better_birch_forest_trees: birch forest              placed_better_tall_birch_forest_trees: old growth birch forest
+            #   placed_better_dark_forest_vegetation: dark forest           placed_better_plains_trees: plains, sunflower plains
+            #   placed_better_jungle_trees: jungle                          placed_better_sparse_jungle_trees: sparse jungle
+            #   placed_better_bamboo_jungle_vegetation: bamboo jungle       placed_better_water_biome_trees: rivers and beaches with trees
+            #   placed_better_savannah_trees: savanna                       placed_better_windswept_savannah_trees: windswept savanna
+            #   placed_better_windswept_hills_trees: windswept hills        placed_better_windswept_forest_trees: windswept forest
+            #   placed_better_swamp_trees: swamp                            placed_better_badlands_trees: wooded badlands
+            #   placed_better_meadow_trees: meadow
+            #density.placed_better_jungle_trees=0.5
+
+            # max_branch_depth.<tree feature>: how deeply branches can grow off branches (1 means only branches off the trunk)
+            # max_logs.<tree feature>: stop growing new branches once a tree's trunk and branches are this many logs long in total
+            # Tree features are tree_better_oak, tree_better_birch, tree_tall_better_birch_rare_bees and so on (see /spaghettitrees bench), or * for every spaghettitrees tree
+            #max_branch_depth.*=3
+            #max_logs.tree_tall_better_birch_rare_bees=400
+            """;
+
+    // Limits on how big one tree feature's trees can grow
+    public static class Complexity {
+        public final int maxBranchDepth;
+        public final int maxLogs;
+
+        Complexity(int maxBranchDepth, int maxLogs) {
+            this.maxBranchDepth = maxBranchDepth;
+            this.maxLogs = maxLogs;
+        }
+    }
+
+    private static final Map<String, Float> DENSITY;
+    private static final Map<String, Complexity> COMPLEXITY;
+    private static final Complexity DEFAULT_COMPLEXITY;
+
+    static {
+        StartupTimer.begin("tree budgets");
+        Properties properties = SpaghettiTreesConfig.load(FabricLoader.getInstance().getConfigDir().resolve(FILE_NAME), DEFAULTS);
+        Map<String, Float> density = new HashMap<>();
+        Map<String, Integer> depths = new HashMap<>();
+        Map<String, Integer> logs = new HashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            String value = properties.getProperty(key).trim();
+            try {
+                if (key.startsWith("density.")) density.put(key.substring("density.".length()), Float.parseFloat(value));
+                else if (key.startsWith("max_branch_depth.")) depths.put(key.substring("max_branch_depth.".length()), Integer.parseInt(value));
+                else if (key.startsWith("max_logs.")) logs.put(key.substring("max_logs.".length()), Integer.parseInt(value));
+                else LOGGER.warn("Unknown setting {} in {}", key, FILE_NAME);
+            } catch (NumberFormatException e) {
+                LOGGER.error("Invalid value '{}' for {} in {}, ignoring it", value, key, FILE_NAME);
+            }
+        }
+        density.values().removeIf(multiplier -> multiplier < 0 || multiplier > 64);
+        DENSITY = ImmutableMap.copyOf(density);
+
+        int defaultDepth = depths.getOrDefault("*", Integer.MAX_VALUE);
+        int defaultLogs = logs.getOrDefault("*", Integer.MAX_VALUE);
+        DEFAULT_COMPLEXITY = defaultDepth == Integer.MAX_VALUE && defaultLogs == Integer.MAX_VALUE ? null : new Complexity(defaultDepth, defaultLogs);
+        ImmutableMap.Builder<String, Complexity> complexity = ImmutableMap.builder();
+        Set<String> features = new HashSet<>(depths.keySet());
+        features.addAll(logs.keySet());
+        for (String feature : features) {
+            if (!feature.equals("*")) complexity.put(feature, new Complexity(depths.getOrDefault(feature, defaultDepth), logs.getOrDefault(feature, defaultLogs)));
+        }
+        COMPLEXITY = complexity.build();
+        if (!DENSITY.isEmpty() || !COMPLEXITY.isEmpty() || DEFAULT_COMPLEXITY != null) {
+            LOGGER.info("Tree budgets: density multipliers for {}, size limits for {}{}", DENSITY.keySet(), COMPLEXITY.keySet(), DEFAULT_COMPLEXITY != null ? " and every other tree" : "");
+        }
+        StartupTimer.end();
+    }
+
+    // Called as each spaghettitrees placed feature is registered. With a density multiplier for it, returns a copy of the feature that scales its attempts just before they are spread over the chunk.
+    public static PlacedFeature applyDensity(Identifier id, PlacedFeature feature) {
+        Float multiplier = DENSITY.get(id.getPath());
+        if (multiplier == null || multiplier == 1) return feature;
+        List<PlacementModifier> modifiers = feature.placementModifiers();
+        int square = -1;
+        for (int i = 0; i < modifiers.size() && square < 0; i++) {
+            if (modifiers.get(i) instanceof SquarePlacementModifier) square = i;
+        }
+        if (square < 0) {
+            LOGGER.warn("{} doesn't spread trees over the chunk, so its density can't be changed", id);
+            return feature;
+        }
+        return new PlacedFeature(feature.feature(), ImmutableList.<PlacementModifier>builder()
+                .addAll(modifiers.subList(0, square))
+                .add(TreeDensityPlacementModifier.of(multiplier))
+                .addAll(modifiers.subList(square, modifiers.size()))
+                .build());
+    }
+
+    // Returns the size limits for a tree feature, or null if its trees can grow as big as they like
+    public static Complexity getComplexity(TreeFeatureConfig config) {
+        if (COMPLEXITY.isEmpty()) return DEFAULT_COMPLEXITY;
+        Identifier id = RegistryUtil.getConfiguredFeatureIdentifier(config);
+        return id == null ? DEFAULT_COMPLEXITY : COMPLEXITY.getOrDefault(id.getPath(), DEFAULT_COMPLEXITY);
+    }
+}
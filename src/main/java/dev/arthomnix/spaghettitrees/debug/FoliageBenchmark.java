@@ -0,0 +1,90 @@
+package dev.arthomnix.spaghettitrees.debug;
+
+import dev.arthomnix.spaghettitrees.mixin.FoliagePlacerInvoker;
+import dev.arthomnix.spaghettitrees.sim.StubWorld;
+import dev.arthomnix.spaghettitrees.sim.TreeSimulator;
+import dev.arthomnix.spaghettitrees.tree.MaskedBushFoliagePlacer;
+import dev.arthomnix.spaghettitrees.tree.MaskedLargeOakFoliagePlacer;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.intprovider.BiasedToBottomIntProvider;
+import net.minecraft.util.math.intprovider.ConstantIntProvider;
+import net.minecraft.world.gen.feature.TreeFeatureConfig;
+import net.minecraft.world.gen.foliage.BushFoliagePlacer;
+import net.minecraft.world.gen.foliage.FoliagePlacer;
+import net.minecraft.world.gen.foliage.LargeOakFoliagePlacer;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.BiConsumer;
+
+/*
+
+    Times generating single foliage layers of radius 1 to 5 with the vanilla LargeOakFoliagePlacer and BushFoliagePlacer and with the FoliageMask placers spaghettitrees uses instead.
+    Each pair generates the same layers from the same seeds, and the leaves both placed are compared, so the report also shows whether the masked placers still match vanilla.
+
+*/
+public class FoliageBenchmark {
+    private static final int MAX_RADIUS = 5;
+    private static final int WARMUP_ROUNDS = 3;
+
+    // Collects what a placer wrote without changing the world, so every layer sees the same empty stub world
+    private static class Sink implements BiConsumer<BlockPos, BlockState> {
+        long hash = 1125899906842597L;
+        long count = 0;
+
+        @Override
+        public void accept(BlockPos pos, BlockState state) {
+            hash = 31 * hash + pos.asLong();
+            count++;
+        }
+    }
+
+    public static String run(int layers) {
+        TreeFeatureConfig config = TreeSimulator.getTreeFeatures().get("spaghettitrees:tree_better_oak");
+        StringBuilder report = new StringBuilder();
+        boolean allMatched = true;
+        allMatched &= compare(report, "large oak", new LargeOakFoliagePlacer(BiasedToBottomIntProvider.create(1, 2), ConstantIntProvider.create(0), 2),
+                new MaskedLargeOakFoliagePlacer(BiasedToBottomIntProvider.create(1, 2), ConstantIntProvider.create(0), 2), config, layers);
+        allMatched &= compare(report, "bush", new BushFoliagePlacer(BiasedToBottomIntProvider.create(1, 2), ConstantIntProvider.create(1), 2),
+                new MaskedBushFoliagePlacer(BiasedToBottomIntProvider.create(1, 2), ConstantIntProvider.create(1), 2), config, layers);
+        return (allMatched ? "Masked foliage placers matched vanilla" : "MISMATCH: masked foliage placers placed different leaves to vanilla")
+                + " (" + layers + " layers per radius)" + report;
+    }
+
+    private static boolean compare(StringBuilder report, String name, FoliagePlacer vanilla, FoliagePlacer masked, TreeFeatureConfig config, int layers) {
+        boolean matched = true;
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            for (int radius = 1; radius <= MAX_RADIUS; radius++) {
+                generate(vanilla, config, radius, layers);
+                generate(masked, config, radius, layers);
+            }
+        }
+        for (int radius = 1; radius <= MAX_RADIUS; radius++) {
+            long start = System.nanoTime();
+            Sink vanillaSink = generate(vanilla, config, radius, layers);
+            long vanillaNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            Sink maskedSink = generate(masked, config, radius, layers);
+            long maskedNanos = System.nanoTime() - start;
+            boolean radiusMatched = vanillaSink.hash == maskedSink.hash && vanillaSink.count == maskedSink.count;
+            matched &= radiusMatched;
+            report.append(String.format(Locale.ROOT, "\n  %s r=%d: vanilla %.1f ns/layer, masked %.1f ns/layer (%.2fx), %.1f leaves/layer%s",
+                    name, radius, (double) vanillaNanos / layers, (double) maskedNanos / layers, (double) vanillaNanos / Math.max(1, maskedNanos),
+                    (double) vanillaSink.count / layers, radiusMatched ? "" : " MISMATCH"));
+        }
+        return matched;
+    }
+
+    // Generates layers at a few heights and with and without a giant trunk, all from one seed
+    private static Sink generate(FoliagePlacer placer, TreeFeatureConfig config, int radius, int layers) {
+        StubWorld world = new StubWorld();
+        Random random = new Random(radius);
+        Sink sink = new Sink();
+        BlockPos center = new BlockPos(0, StubWorld.DEFAULT_SURFACE_Y + 8, 0);
+        for (int i = 0; i < layers; i++) {
+            ((FoliagePlacerInvoker) placer).callGenerateSquare(world, sink, random, config, center, radius, i % 3 - 1, i % 8 == 0);
+        }
+        return sink;
+    }
+}
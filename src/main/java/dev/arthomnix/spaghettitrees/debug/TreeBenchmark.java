@@ -0,0 +1,191 @@
+package dev.arthomnix.spaghettitrees.debug;
+
+import dev.arthomnix.spaghettitrees.sim.SimulatedTree;
+import dev.arthomnix.spaghettitrees.sim.StubWorld;
+import dev.arthomnix.spaghettitrees.sim.TreeSimulator;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.gen.feature.TreeFeatureConfig;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/*
+
+    Benchmarks every spaghettitrees tree feature against stub worlds and compares the results with a baseline file.
+    The baseline is meant to be committed (see benchmarks/tree-benchmark-baseline.properties and the runs in build.gradle), so a change that makes trees slower, allocate more or place different blocks shows up in review.
+    Trees use fixed seeds, so the total number of blocks placed is stored as a whole number and any change in it means tree shapes changed. Timing and allocation get the tolerances stored in the baseline file.
+    A baseline is only comparable with a run of the same number of trees, so a comparison uses the number of trees the baseline was saved with.
+
+*/
+public class TreeBenchmark {
+    public static final String BASELINE_PROPERTY = "spaghettitrees.benchmarkBaseline";
+    private static final int FORMAT = 2;
+    private static final double DEFAULT_NANOS_TOLERANCE = 0.15;
+    private static final double DEFAULT_BYTES_TOLERANCE = 0.05;
+
+    private static class Result {
+        final double nanosPerTree;
+        // -1 if the JVM can't count allocations
+        final double bytesPerTree;
+        // total over every tree, so it can be compared exactly
+        final long blocks;
+
+        Result(double nanosPerTree, double bytesPerTree, long blocks) {
+            this.nanosPerTree = nanosPerTree;
+            this.bytesPerTree = bytesPerTree;
+            this.blocks = blocks;
+        }
+    }
+
+    public static Path getBaselinePath() {
+        String path = System.getProperty(BASELINE_PROPERTY);
+        return path != null ? Paths.get(path) : FabricLoader.getInstance().getGameDir().resolve("tree-benchmark-baseline.properties");
+    }
+
+    public static String saveBaseline(int trees) throws IOException {
+        Map<String, Result> results = run(trees);
+        Path path = getBaselinePath();
+        Properties previous = load(path);
+        Properties baseline = new Properties();
+        baseline.setProperty("format", Integer.toString(FORMAT));
+        baseline.setProperty("trees", Integer.toString(trees));
+        // keep any tolerances that were tuned by hand
+        baseline.setProperty("tolerance.ns_per_tree", previous.getProperty("tolerance.ns_per_tree", Double.toString(DEFAULT_NANOS_TOLERANCE)));
+        baseline.setProperty("tolerance.bytes_per_tree", previous.getProperty("tolerance.bytes_per_tree", Double.toString(DEFAULT_BYTES_TOLERANCE)));
+        results.forEach((id, result) -> {
+            baseline.setProperty(id + ".ns_per_tree", String.format(Locale.ROOT, "%.0f", result.nanosPerTree));
+            baseline.setProperty(id + ".bytes_per_tree", String.format(Locale.ROOT, "%.0f", result.bytesPerTree));
+            baseline.setProperty(id + ".blocks", Long.toString(result.blocks));
+        });
+        if (path.getParent() != null) Files.createDirectories(path.getParent());
+        try (Writer writer = Files.newBufferedWriter(path)) {
+            baseline.store(writer, "SpaghettiTrees tree benchmark baseline, written by /spaghettitrees bench save. Tolerances are fractions of the baseline value.");
+        }
+        return "Saved a baseline for " + results.size() + " features to " + path;
+    }
+
+    // Compares with the baseline using the number of trees it was saved with
+    public static String compare() throws IOException {
+        return compare(-1);
+    }
+
+    public static String compare(int trees) throws IOException {
+        Path path = getBaselinePath();
+        Properties baseline = load(path);
+        if (!Integer.toString(FORMAT).equals(baseline.getProperty("format"))) {
+            return "No baseline in format " + FORMAT + " at " + path + ", create one with /spaghettitrees bench save";
+        }
+        if (baseline.stringPropertyNames().stream().noneMatch(key -> key.endsWith(".ns_per_tree") && !key.startsWith("tolerance."))) {
+            return "The baseline at " + path + " has no measurements, create one with /spaghettitrees bench save";
+        }
+        int baselineTrees = Integer.parseInt(baseline.getProperty("trees", "0"));
+        if (trees < 0) {
+            trees = baselineTrees;
+        } else if (trees != baselineTrees) {
+            return "The baseline at " + path + " was saved with " + baselineTrees + " trees per feature, so it can't be compared with a run of " + trees + ": run /spaghettitrees bench " + baselineTrees + ", or save a new baseline with /spaghettitrees bench save " + trees;
+        }
+        double nanosTolerance = Double.parseDouble(baseline.getProperty("tolerance.ns_per_tree", Double.toString(DEFAULT_NANOS_TOLERANCE)));
+        double bytesTolerance = Double.parseDouble(baseline.getProperty("tolerance.bytes_per_tree", Double.toString(DEFAULT_BYTES_TOLERANCE)));
+
+        Map<String, Result> results = run(trees);
+        StringBuilder report = new StringBuilder();
+        int regressions = 0;
+        // a feature missing from the baseline can't be checked, so it fails until the baseline is saved again
+        int missing = 0;
+        for (Map.Entry<String, Result> entry : results.entrySet()) {
+            String id = entry.getKey();
+            Result result = entry.getValue();
+            if (baseline.getProperty(id + ".ns_per_tree") == null) {
+                missing++;
+                report.append("\n  MISSING    ").append(id).append(": not in the baseline");
+                continue;
+            }
+            List<String> problems = new ArrayList<>();
+            String nanos = compareValue("ns/tree", result.nanosPerTree, baseline, id + ".ns_per_tree", nanosTolerance, problems);
+            String bytes = result.bytesPerTree < 0 ? "bytes/tree unavailable" : compareValue("bytes/tree", result.bytesPerTree, baseline, id + ".bytes_per_tree", bytesTolerance, problems);
+            String blocks = compareBlocks(result.blocks, trees, baseline, id + ".blocks", problems);
+            if (!problems.isEmpty()) regressions++;
+            report.append("\n  ").append(problems.isEmpty() ? "ok         " : "REGRESSION ").append(id).append(": ")
+                    .append(nanos).append(", ").append(bytes).append(", ").append(blocks);
+        }
+        for (String key : baseline.stringPropertyNames()) {
+            if (key.endsWith(".ns_per_tree") && !key.startsWith("tolerance.") && !results.containsKey(key.substring(0, key.length() - ".ns_per_tree".length()))) {
+                missing++;
+                report.append("\n  MISSING    ").append(key, 0, key.length() - ".ns_per_tree".length()).append(": in the baseline but no longer exists");
+            }
+        }
+        String summary;
+        if (regressions == 0 && missing == 0) {
+            summary = "No regressions against " + path.getFileName() + " (" + results.size() + " features, " + trees + " trees each)";
+        } else {
+            summary = regressions + " of " + results.size() + " features regressed against " + path.getFileName();
+            if (missing > 0) summary += ", and " + missing + " features aren't in both the baseline and this build: run /spaghettitrees bench save to update the baseline";
+        }
+        return summary + report;
+    }
+
+    private static String compareValue(String name, double value, Properties baseline, String key, double tolerance, List<String> problems) {
+        double expected = Double.parseDouble(baseline.getProperty(key, "0"));
+        double change = expected == 0 ? (value == 0 ? 0 : Double.POSITIVE_INFINITY) : (value - expected) / expected;
+        boolean regressed = change > tolerance;
+        if (regressed) problems.add(name);
+        return String.format(Locale.ROOT, "%s %.0f (%+.1f%%%s)", name, value, change * 100, regressed ? "!" : "");
+    }
+
+    // the block count going down is as much a change in tree shape as it going up, so any difference is a regression
+    private static String compareBlocks(long blocks, int trees, Properties baseline, String key, List<String> problems) {
+        long expected = Long.parseLong(baseline.getProperty(key, "0"));
+        boolean regressed = blocks != expected;
+        if (regressed) problems.add("blocks");
+        return String.format(Locale.ROOT, "blocks/tree %.2f (%+d blocks%s)", (double) blocks / trees, blocks - expected, regressed ? "!" : "");
+    }
+
+    private static Properties load(Path path) throws IOException {
+        Properties properties = new Properties();
+        if (Files.exists(path)) {
+            try (Reader reader = Files.newBufferedReader(path)) {
+                properties.load(reader);
+            }
+        }
+        return properties;
+    }
+
+    private static Map<String, Result> run(int trees) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        com.sun.management.ThreadMXBean allocations = threads instanceof com.sun.management.ThreadMXBean bean && bean.isThreadAllocatedMemorySupported() ? bean : null;
+        if (allocations != null) allocations.setThreadAllocatedMemoryEnabled(true);
+        long thread = Thread.currentThread().getId();
+        BlockPos origin = new BlockPos(0, StubWorld.DEFAULT_SURFACE_Y, 0);
+
+        Map<String, TreeFeatureConfig> features = TreeSimulator.getTreeFeatures();
+        // warm every feature up first so the features measured first aren't penalised
+        for (int round = 0; round < 3; round++) {
+            for (TreeFeatureConfig config : features.values()) {
+                for (int seed = 0; seed < trees; seed++) TreeSimulator.simulate(config, seed, origin, new StubWorld());
+            }
+        }
+
+        Map<String, Result> results = new TreeMap<>();
+        for (Map.Entry<String, TreeFeatureConfig> entry : features.entrySet()) {
+            long blocks = 0;
+            long bytesBefore = allocations != null ? allocations.getThreadAllocatedBytes(thread) : 0;
+            long start = System.nanoTime();
+            for (int seed = 0; seed < trees; seed++) {
+                SimulatedTree tree = TreeSimulator.simulate(entry.getValue(), seed, origin, new StubWorld());
+                blocks += tree.getBlockCount();
+            }
+            long elapsed = System.nanoTime() - start;
+            long bytes = allocations != null ? allocations.getThreadAllocatedBytes(thread) - bytesBefore : -1;
+            results.put(entry.getKey(), new Result((double) elapsed / trees, bytes < 0 ? -1 : (double) bytes / trees, blocks));
+        }
+        return results;
+    }
+}
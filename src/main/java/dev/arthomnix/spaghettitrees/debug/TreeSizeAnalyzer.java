@@ -0,0 +1,230 @@
+package dev.arthomnix.spaghettitrees.debug;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import dev.arthomnix.spaghettitrees.sim.SimulatedTree;
+import dev.arthomnix.spaghettitrees.sim.StubWorld;
+import dev.arthomnix.spaghettitrees.sim.TreeSimulator;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.gen.feature.TreeFeatureConfig;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+
+    Generates a large number of trees of every spaghettitrees tree feature against stub worlds and writes out the distribution of their sizes, for sizing worldgen threads and heap from the worst trees rather than the average ones.
+    The results go to <name>.csv (one row per feature and measurement) and <name>.json in the given directory.
+    Generation time is measured per tree with every thread busy, so it is closer to what worldgen threads see than to TreeBenchmark's single-threaded numbers.
+    Each thread counts its trees' measurements into histograms rather than keeping every value, so memory use stays the same however many trees are generated.
+    Values up to 255 are counted exactly and larger ones to 8 significant bits (rounded down by less than 1%), which is plenty for percentiles.
+
+*/
+public class TreeSizeAnalyzer {
+    private static final String[] MEASUREMENTS = {"log_count", "leaf_count", "block_count", "branch_count", "max_depth", "width_x", "width_z", "height", "generation_ns"};
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+    private static final int WARMUP_TREES = 2000;
+    // seeds are handed out to the threads in batches this size
+    private static final int BATCH_SIZE = 4096;
+
+    // Counts of one measurement's values, bucketed as described above
+    private static class Histogram {
+        private static final int EXACT_BITS = 8;
+        private static final int HALF = 1 << (EXACT_BITS - 1);
+        private static final int BUCKETS = (Integer.SIZE - EXACT_BITS) * HALF + 2 * HALF;
+
+        private final long[] counts = new long[BUCKETS];
+        private long trees = 0;
+        private long sum = 0;
+        private int min = Integer.MAX_VALUE;
+        private int max = Integer.MIN_VALUE;
+
+        void add(int value) {
+            counts[bucket(Math.max(0, value))]++;
+            trees++;
+            sum += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+
+        void addAll(Histogram other) {
+            for (int i = 0; i < BUCKETS; i++) counts[i] += other.counts[i];
+            trees += other.trees;
+            sum += other.sum;
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+
+        double mean() {
+            return (double) sum / trees;
+        }
+
+        // Nearest-rank percentile, rounded down to the start of its bucket
+        int percentile(double percentile) {
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * trees));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) return Math.max(min, Math.min(max, lowestValue(i)));
+            }
+            return max;
+        }
+
+        private static int bucket(int value) {
+            int shift = Math.max(0, Integer.SIZE - Integer.numberOfLeadingZeros(value) - EXACT_BITS);
+            return shift * HALF + (value >> shift);
+        }
+
+        private static int lowestValue(int bucket) {
+            int shift = Math.max(0, bucket / HALF - 1);
+            return (bucket - shift * HALF) << shift;
+        }
+    }
+
+    public static String run(int treesPerFeature, int threads, Path directory, String name) throws IOException, InterruptedException, ExecutionException {
+        Map<String, TreeFeatureConfig> features = TreeSimulator.getTreeFeatures();
+        BlockPos origin = new BlockPos(0, StubWorld.DEFAULT_SURFACE_Y, 0);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Map<String, Histogram[]> results = new LinkedHashMap<>();
+        long start = System.nanoTime();
+        try {
+            // so the first features analyzed aren't timed in the interpreter
+            for (TreeFeatureConfig config : features.values()) {
+                for (int seed = 0; seed < WARMUP_TREES; seed++) TreeSimulator.simulate(config, seed, origin, new StubWorld());
+            }
+            for (Map.Entry<String, TreeFeatureConfig> entry : features.entrySet()) {
+                results.put(entry.getKey(), analyze(executor, threads, entry.getValue(), treesPerFeature, origin));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Files.createDirectories(directory);
+        Path csv = directory.resolve(name + ".csv");
+        Path json = directory.resolve(name + ".json");
+        writeCsv(csv, results, treesPerFeature);
+        writeJson(json, results, treesPerFeature);
+
+        String largest = null;
+        int largestBlocks = -1;
+        for (Map.Entry<String, Histogram[]> entry : results.entrySet()) {
+            int blocks = entry.getValue()[2].percentile(99.9);
+            if (blocks > largestBlocks) {
+                largest = entry.getKey();
+                largestBlocks = blocks;
+            }
+        }
+        return String.format(Locale.ROOT, "Analyzed %d trees of %d features on %d threads in %d s, largest p99.9 tree: %s (%d blocks). Wrote %s and %s",
+                treesPerFeature, features.size(), threads, TimeUnit.NANOSECONDS.toSeconds(elapsed), largest, largestBlocks, csv, json);
+    }
+
+    // Returns one histogram per measurement. Every thread fills its own histograms from batches of seeds and they are merged at the end.
+    private static Histogram[] analyze(ExecutorService executor, int threads, TreeFeatureConfig config, int trees, BlockPos origin) throws InterruptedException, ExecutionException {
+        AtomicInteger nextBatch = new AtomicInteger();
+        List<Future<Histogram[]>> workers = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++) {
+            workers.add(executor.submit(() -> {
+                Histogram[] histograms = newHistograms();
+                for (int from = nextBatch.getAndAdd(BATCH_SIZE); from < trees; from = nextBatch.getAndAdd(BATCH_SIZE)) {
+                    int to = Math.min(trees, from + BATCH_SIZE);
+                    for (int i = from; i < to; i++) measure(config, seedFor(i), origin, histograms);
+                }
+                return histograms;
+            }));
+        }
+        Histogram[] histograms = newHistograms();
+        for (Future<Histogram[]> worker : workers) {
+            Histogram[] workerHistograms = worker.get();
+            for (int m = 0; m < MEASUREMENTS.length; m++) histograms[m].addAll(workerHistograms[m]);
+        }
+        return histograms;
+    }
+
+    private static Histogram[] newHistograms() {
+        Histogram[] histograms = new Histogram[MEASUREMENTS.length];
+        for (int m = 0; m < MEASUREMENTS.length; m++) histograms[m] = new Histogram();
+        return histograms;
+    }
+
+    private static void measure(TreeFeatureConfig config, long seed, BlockPos origin, Histogram[] histograms) {
+        long start = System.nanoTime();
+        SimulatedTree tree = TreeSimulator.simulate(config, seed, origin, new StubWorld());
+        long elapsed = System.nanoTime() - start;
+
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+        for (BlockPos pos : tree.positions) {
+            minX = Math.min(minX, pos.getX());
+            minY = Math.min(minY, pos.getY());
+            minZ = Math.min(minZ, pos.getZ());
+            maxX = Math.max(maxX, pos.getX());
+            maxY = Math.max(maxY, pos.getY());
+            maxZ = Math.max(maxZ, pos.getZ());
+        }
+        boolean empty = tree.positions.isEmpty();
+
+        // same order as MEASUREMENTS
+        histograms[0].add(tree.logs.size());
+        histograms[1].add(tree.leaves.size());
+        histograms[2].add(tree.getBlockCount());
+        histograms[3].add(tree.branchCount);
+        histograms[4].add(tree.maxDepth);
+        histograms[5].add(empty ? 0 : maxX - minX + 1);
+        histograms[6].add(empty ? 0 : maxZ - minZ + 1);
+        histograms[7].add(empty ? 0 : maxY - minY + 1);
+        histograms[8].add((int) Math.min(Integer.MAX_VALUE, elapsed));
+    }
+
+    private static long seedFor(int index) {
+        return index * 0x9E3779B97F4A7C15L;
+    }
+
+    private static String percentileName(double percentile) {
+        return "p" + (percentile == Math.floor(percentile) ? Integer.toString((int) percentile) : Double.toString(percentile).replace('.', '_'));
+    }
+
+    private static void writeCsv(Path path, Map<String, Histogram[]> results, int trees) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(path)) {
+            writer.write("feature,measurement,trees,mean,min");
+            for (double percentile : PERCENTILES) writer.write("," + percentileName(percentile));
+            writer.write(",max\n");
+            for (Map.Entry<String, Histogram[]> entry : results.entrySet()) {
+                for (int m = 0; m < MEASUREMENTS.length; m++) {
+                    Histogram histogram = entry.getValue()[m];
+                    writer.write(String.format(Locale.ROOT, "%s,%s,%d,%.2f,%d", entry.getKey(), MEASUREMENTS[m], trees, histogram.mean(), histogram.min));
+                    for (double percentile : PERCENTILES) writer.write("," + histogram.percentile(percentile));
+                    writer.write("," + histogram.max + "\n");
+                }
+            }
+        }
+    }
+
+    private static void writeJson(Path path, Map<String, Histogram[]> results, int trees) throws IOException {
+        JsonObject root = new JsonObject();
+        root.addProperty("trees_per_feature", trees);
+        JsonObject features = new JsonObject();
+        for (Map.Entry<String, Histogram[]> entry : results.entrySet()) {
+            JsonObject feature = new JsonObject();
+            for (int m = 0; m < MEASUREMENTS.length; m++) {
+                Histogram histogram = entry.getValue()[m];
+                JsonObject measurement = new JsonObject();
+                measurement.addProperty("mean", histogram.mean());
+                measurement.addProperty("min", histogram.min);
+                for (double percentile : PERCENTILES) measurement.addProperty(percentileName(percentile), histogram.percentile(percentile));
+                measurement.addProperty("max", histogram.max);
+                feature.add(MEASUREMENTS[m], measurement);
+            }
+            features.add(entry.getKey(), feature);
+        }
+        root.add("features", features);
+        try (Writer writer = Files.newBufferedWriter(path)) {
+            new GsonBuilder().setPrettyPrinting().create().toJson(root, writer);
+        }
+    }
+}
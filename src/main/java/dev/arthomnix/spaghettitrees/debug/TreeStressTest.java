@@ -0,0 +1,65 @@
+package dev.arthomnix.spaghettitrees.debug;
+
+import dev.arthomnix.spaghettitrees.sim.StubWorld;
+import dev.arthomnix.spaghettitrees.sim.TreeSimulator;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.gen.feature.TreeFeatureConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+// Generates the same trees on many threads at once and checks that every thread gets the same result as a single-threaded run
+public class TreeStressTest {
+    public static String run(int threads, int treesPerFeature) throws InterruptedException, ExecutionException {
+        List<String> ids = new ArrayList<>();
+        List<TreeFeatureConfig> configs = new ArrayList<>();
+        for (Map.Entry<String, TreeFeatureConfig> entry : TreeSimulator.getTreeFeatures().entrySet()) {
+            for (int seed = 0; seed < treesPerFeature; seed++) {
+                ids.add(entry.getKey());
+                configs.add(entry.getValue());
+            }
+        }
+        int cases = configs.size();
+        BlockPos origin = new BlockPos(0, StubWorld.DEFAULT_SURFACE_Y, 0);
+
+        long[] expected = new long[cases];
+        for (int i = 0; i < cases; i++) {
+            expected[i] = TreeSimulator.simulate(configs.get(i), seedFor(i), origin, new StubWorld()).hash();
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<List<String>>> results = new ArrayList<>();
+        long start = System.nanoTime();
+        try {
+            for (int t = 0; t < threads; t++) {
+                // each thread starts at a different point so that threads are generating different features at the same time
+                int offset = t * cases / threads;
+                results.add(executor.submit(() -> {
+                    List<String> mismatches = new ArrayList<>();
+                    for (int n = 0; n < cases; n++) {
+                        int i = (n + offset) % cases;
+                        if (TreeSimulator.simulate(configs.get(i), seedFor(i), origin, new StubWorld()).hash() != expected[i]) {
+                            mismatches.add(ids.get(i) + " (seed " + seedFor(i) + ")");
+                        }
+                    }
+                    return mismatches;
+                }));
+            }
+            List<String> mismatches = new ArrayList<>();
+            for (Future<List<String>> result : results) mismatches.addAll(result.get());
+            long elapsed = System.nanoTime() - start;
+
+            String summary = String.format("Generated %d trees on %d threads in %d ms: ", cases * threads, threads, TimeUnit.NANOSECONDS.toMillis(elapsed));
+            if (mismatches.isEmpty()) return summary + "all trees matched the single-threaded run";
+            return summary + mismatches.size() + " trees differed from the single-threaded run, e.g. " + String.join(", ", mismatches.subList(0, Math.min(5, mismatches.size())));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static long seedFor(int index) {
+        return index * 0x9E3779B97F4A7C15L;
+    }
+}
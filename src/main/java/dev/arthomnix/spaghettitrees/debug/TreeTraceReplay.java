@@ -0,0 +1,81 @@
+package dev.arthomnix.spaghettitrees.debug;
+
+import dev.arthomnix.spaghettitrees.sim.SimulatedTree;
+import dev.arthomnix.spaghettitrees.sim.StubWorld;
+import dev.arthomnix.spaghettitrees.sim.TreeSimulator;
+import dev.arthomnix.spaghettitrees.sim.TreeTrace;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.gen.feature.TreeFeatureConfig;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/*
+
+    Regenerates every tree in a recorded TreeTrace against a StubWorld and checks that the trunk, foliage and decorators make the same writes they did in the world.
+    Each StubWorld is loaded with the blocks the tree read from the world when it was recorded, so trees that grew into terrain or other trees see the same surroundings again.
+    Traces recorded before reads were traced (version 1) only have the ground, so trees there that touched anything else won't match, but they fail the same way on every run.
+    The trace is then replayed a few more times to measure throughput.
+
+*/
+public class TreeTraceReplay {
+    public static String run(Path path, int iterations) throws IOException {
+        Map<String, TreeFeatureConfig> features = TreeSimulator.getTreeFeatures();
+        List<TreeTrace.TracedTree> trees = new ArrayList<>();
+        try (TreeTrace.Reader reader = new TreeTrace.Reader(path)) {
+            TreeTrace.TracedTree tree;
+            while ((tree = reader.read()) != null) trees.add(tree);
+        }
+
+        int matched = 0;
+        int unknown = 0;
+        long writes = 0;
+        // mismatches per feature
+        Map<String, Integer> mismatches = new TreeMap<>();
+        for (TreeTrace.TracedTree tree : trees) {
+            TreeFeatureConfig config = features.get(tree.featureId);
+            if (config == null) {
+                unknown++;
+                continue;
+            }
+            SimulatedTree replayed = replay(config, tree);
+            writes += replayed.getBlockCount();
+            if (replayed.hash() == tree.writes.hash() && replayed.getBlockCount() == tree.writes.getBlockCount()) {
+                matched++;
+            } else {
+                mismatches.merge(tree.featureId, 1, Integer::sum);
+            }
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            for (TreeTrace.TracedTree tree : trees) {
+                TreeFeatureConfig config = features.get(tree.featureId);
+                if (config != null) replay(config, tree);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        StringBuilder report = new StringBuilder(String.format("Replayed %d trees (%d writes) from %s: %d matched the trace", trees.size() - unknown, writes, path.getFileName(), matched));
+        if (unknown > 0) report.append(", ").append(unknown).append(" had features that no longer exist");
+        if (!mismatches.isEmpty()) report.append("\nDiffered from the trace: ").append(mismatches);
+        if (iterations > 0) {
+            double seconds = elapsed / 1e9;
+            report.append(String.format("\n%d iterations in %d ms: %.0f trees/s, %.0f writes/s",
+                    iterations, TimeUnit.NANOSECONDS.toMillis(elapsed), iterations * (trees.size() - unknown) / seconds, iterations * writes / seconds));
+        }
+        return report.toString();
+    }
+
+    private static SimulatedTree replay(TreeFeatureConfig config, TreeTrace.TracedTree tree) {
+        // the ground is directly below the origin, as it was in the world
+        StubWorld world = new StubWorld(tree.origin.getY());
+        for (Map.Entry<BlockPos, BlockState> read : tree.reads.entrySet()) world.setBlockState(read.getKey(), read.getValue());
+        return tree.decorated
+                ? TreeSimulator.simulate(config, tree.seed, tree.origin, world)
+                : TreeSimulator.simulateShape(config, tree.seed, tree.origin, world);
+    }
+}
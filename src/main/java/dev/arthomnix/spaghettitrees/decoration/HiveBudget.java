@@ -0,0 +1,180 @@
+package dev.arthomnix.spaghettitrees.decoration;
+
+import dev.arthomnix.spaghettitrees.config.SpaghettiTreesConfig;
+import dev.arthomnix.spaghettitrees.util.SpaghettiTreesMetrics;
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.block.entity.BlockEntityType;
+import net.minecraft.entity.EntityType;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtElement;
+import net.minecraft.nbt.NbtList;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.registry.Registry;
+import net.minecraft.world.ChunkRegion;
+import net.minecraft.world.PersistentState;
+import net.minecraft.world.StructureWorldAccess;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+
+    Limits how many beehives and bees trees can generate in each 64x64 block region (4x4 chunks), set by max_hives_per_region and max_bees_per_region.
+    Hives over the limit aren't placed, and hives placed once the bee limit is reached are left empty.
+    With lazy_bees enabled, the bees of hives generated during chunk generation are only added when the chunk first ticks near a player, so bees nobody visits are never created.
+    Saved with the world as data/spaghettitrees_hive_budget.dat so regions generated across several sessions still share one budget.
+
+*/
+public class HiveBudget extends PersistentState {
+    public static final String ID = "spaghettitrees_hive_budget";
+    private static final int REGION_SHIFT = 6;
+
+    private static final LongAdder HIVES_SKIPPED = SpaghettiTreesMetrics.counter("bee_budget.hives_skipped");
+    private static final LongAdder BEES_AVOIDED = SpaghettiTreesMetrics.counter("bee_budget.bees_avoided");
+    private static final LongAdder BEES_DEFERRED = SpaghettiTreesMetrics.counter("lazy_bees.deferred");
+    private static final LongAdder BEES_POPULATED = SpaghettiTreesMetrics.counter("lazy_bees.populated");
+
+    // the world BeehiveTreeDecorator is placing a hive in on this thread, set by BeehiveTreeDecoratorMixin
+    private static final ThreadLocal<StructureWorldAccess> CURRENT_WORLD = new ThreadLocal<>();
+
+    private final Long2IntMap hives = new Long2IntOpenHashMap();
+    private final Long2IntMap bees = new Long2IntOpenHashMap();
+    // chunk -> hive position -> bees still to be added
+    private final Long2ObjectMap<Long2IntMap> pendingBees = new Long2ObjectOpenHashMap<>();
+    private volatile boolean noPendingBees = true;
+
+    public static boolean isEnabled() {
+        return SpaghettiTreesConfig.MAX_HIVES_PER_REGION > 0 || SpaghettiTreesConfig.MAX_BEES_PER_REGION > 0 || SpaghettiTreesConfig.LAZY_BEES;
+    }
+
+    public static void setCurrentWorld(StructureWorldAccess world) {
+        if (world == null) {
+            CURRENT_WORLD.remove();
+        } else {
+            CURRENT_WORLD.set(world);
+        }
+    }
+
+    public static StructureWorldAccess getCurrentWorld() {
+        return CURRENT_WORLD.get();
+    }
+
+    private static long region(BlockPos pos) {
+        return ChunkPos.toLong(pos.getX() >> REGION_SHIFT, pos.getZ() >> REGION_SHIFT);
+    }
+
+    // Returns false if the hive's region already has as many hives as it's allowed
+    public synchronized boolean tryPlaceHive(BlockPos pos) {
+        int max = SpaghettiTreesConfig.MAX_HIVES_PER_REGION;
+        long region = region(pos);
+        int count = hives.get(region);
+        if (max > 0 && count >= max) {
+            HIVES_SKIPPED.increment();
+            return false;
+        }
+        hives.put(region, count + 1);
+        markDirty();
+        return true;
+    }
+
+    /*
+
+        Called for each bee BeehiveTreeDecorator tries to add to a hive. Returns true if the bee should be added now.
+        Bees over the region's budget are dropped, and with lazy_bees, bees in chunks that are still generating are queued for populateBees.
+
+    */
+    public synchronized boolean tryAddBee(StructureWorldAccess world, BlockPos pos) {
+        int max = SpaghettiTreesConfig.MAX_BEES_PER_REGION;
+        long region = region(pos);
+        int count = bees.get(region);
+        if (max > 0 && count >= max) {
+            BEES_AVOIDED.increment();
+            return false;
+        }
+        bees.put(region, count + 1);
+        markDirty();
+        if (SpaghettiTreesConfig.LAZY_BEES && world instanceof ChunkRegion) {
+            pendingBees.computeIfAbsent(ChunkPos.toLong(pos.getX() >> 4, pos.getZ() >> 4), chunk -> new Long2IntOpenHashMap()).mergeInt(pos.asLong(), 1, Integer::sum);
+            noPendingBees = false;
+            BEES_DEFERRED.increment();
+            return false;
+        }
+        return true;
+    }
+
+    // Called for every ticking chunk, so returns straight away unless there is something to do
+    public void populateBees(ServerWorld world, ChunkPos pos) {
+        if (noPendingBees) return;
+        Long2IntMap chunkHives;
+        synchronized (this) {
+            chunkHives = pendingBees.remove(pos.toLong());
+            if (chunkHives == null) return;
+            noPendingBees = pendingBees.isEmpty();
+            markDirty();
+        }
+        for (Long2IntMap.Entry hive : chunkHives.long2IntEntrySet()) {
+            // the hive may have been broken or replaced since it was generated
+            world.getBlockEntity(BlockPos.fromLong(hive.getLongKey()), BlockEntityType.BEEHIVE).ifPresent(blockEntity -> {
+                for (int i = 0; i < hive.getIntValue(); i++) {
+                    // same as BeehiveTreeDecorator
+                    NbtCompound bee = new NbtCompound();
+                    bee.putString("id", Registry.ENTITY_TYPE.getId(EntityType.BEE).toString());
+                    blockEntity.addBee(bee, world.random.nextInt(599), false);
+                    BEES_POPULATED.increment();
+                }
+            });
+        }
+    }
+
+    public static HiveBudget fromNbt(NbtCompound nbt) {
+        HiveBudget budget = new HiveBudget();
+        readCounts(nbt.getList("hives", NbtElement.COMPOUND_TYPE), budget.hives);
+        readCounts(nbt.getList("bees", NbtElement.COMPOUND_TYPE), budget.bees);
+        NbtList chunks = nbt.getList("pending_bees", NbtElement.COMPOUND_TYPE);
+        for (int i = 0; i < chunks.size(); i++) {
+            NbtCompound chunk = chunks.getCompound(i);
+            Long2IntMap chunkHives = new Long2IntOpenHashMap();
+            readCounts(chunk.getList("hives", NbtElement.COMPOUND_TYPE), chunkHives);
+            budget.pendingBees.put(chunk.getLong("pos"), chunkHives);
+        }
+        budget.noPendingBees = budget.pendingBees.isEmpty();
+        return budget;
+    }
+
+    @Override
+    public synchronized NbtCompound writeNbt(NbtCompound nbt) {
+        nbt.put("hives", writeCounts(hives));
+        nbt.put("bees", writeCounts(bees));
+        NbtList chunks = new NbtList();
+        for (Long2ObjectMap.Entry<Long2IntMap> entry : pendingBees.long2ObjectEntrySet()) {
+            NbtCompound chunk = new NbtCompound();
+            chunk.putLong("pos", entry.getLongKey());
+            chunk.put("hives", writeCounts(entry.getValue()));
+            chunks.add(chunk);
+        }
+        nbt.put("pending_bees", chunks);
+        return nbt;
+    }
+
+    private static void readCounts(NbtList list, Long2IntMap counts) {
+        for (int i = 0; i < list.size(); i++) {
+            NbtCompound entry = list.getCompound(i);
+            counts.put(entry.getLong("pos"), entry.getInt("count"));
+        }
+    }
+
+    private static NbtList writeCounts(Long2IntMap counts) {
+        NbtList list = new NbtList();
+        for (Long2IntMap.Entry entry : counts.long2IntEntrySet()) {
+            NbtCompound compound = new NbtCompound();
+            compound.putLong("pos", entry.getLongKey());
+            compound.putInt("count", entry.getIntValue());
+            list.add(compound);
+        }
+        return list;
+    }
+}
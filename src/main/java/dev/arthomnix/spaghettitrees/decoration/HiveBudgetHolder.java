@@ -0,0 +1,6 @@
+package dev.arthomnix.spaghettitrees.decoration;
+
+// Implemented by ServerWorld through ServerWorldMixin
+public interface HiveBudgetHolder {
+    HiveBudget getHiveBudget();
+}
@@ -0,0 +1,65 @@
+package dev.arthomnix.spaghettitrees.decoration;
+
+import dev.arthomnix.spaghettitrees.config.SpaghettiTreesConfig;
+import dev.arthomnix.spaghettitrees.tree.BetterTrunkPlacer;
+import dev.arthomnix.spaghettitrees.util.RegistryUtil;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.tag.BlockTags;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.ChunkRegion;
+import net.minecraft.world.StructureWorldAccess;
+import net.minecraft.world.TestableWorld;
+import net.minecraft.world.gen.feature.TreeFeatureConfig;
+
+/*
+
+    With lazy_decoration enabled, trees generated during chunk generation are placed without their decorators, which are run later by PendingDecorations once the chunk ticks.
+    A deferred tree is generated from a seed taken from the feature's random, so the same trunk and foliage (and the random the decorators would have had) can be reproduced from just that seed.
+    What the seed can't reproduce is where the tree was blocked by another tree's logs, which would look just like its own logs once both are in the world, so those positions are kept along with the seed.
+
+*/
+public class LazyDecoration {
+    // seed of the tree TreeFeature is generating on this thread, or null if its decorators should run straight away
+    private static final ThreadLocal<Long> CURRENT_SEED = new ThreadLocal<>();
+    // logs that were in the way of the tree being generated on this thread, packed with BlockPos.asLong
+    private static final ThreadLocal<LongSet> BLOCKED_LOGS = ThreadLocal.withInitial(LongOpenHashSet::new);
+
+    public static boolean shouldDefer(StructureWorldAccess world, TreeFeatureConfig config) {
+        return SpaghettiTreesConfig.LAZY_DECORATION
+                && world instanceof ChunkRegion
+                && !config.decorators.isEmpty()
+                && RegistryUtil.getConfiguredFeatureIdentifier(config) != null;
+    }
+
+    // Sets the seed of the tree about to be generated on this thread, or null if its decorators shouldn't be deferred
+    public static void begin(Long seed) {
+        BLOCKED_LOGS.get().clear();
+        if (seed == null) {
+            CURRENT_SEED.remove();
+        } else {
+            CURRENT_SEED.set(seed);
+        }
+    }
+
+    // Called whenever TreeFeature.canReplace says no; a log there means the tree being deferred didn't place the block its seed says it did
+    public static void onNotReplaceable(TestableWorld world, BlockPos pos) {
+        if (CURRENT_SEED.get() == null) return;
+        if (world.testBlockState(pos, state -> state.isIn(BlockTags.LOGS))) BLOCKED_LOGS.get().add(pos.asLong());
+    }
+
+    // Queues the current tree's decorators and returns true, or returns false if they should run now
+    public static boolean deferDecorators(StructureWorldAccess world, BlockPos origin, TreeFeatureConfig config) {
+        Long seed = CURRENT_SEED.get();
+        if (seed == null) return false;
+        CURRENT_SEED.remove();
+        Identifier featureId = RegistryUtil.getConfiguredFeatureIdentifier(config);
+        // the origin is always in the chunk whose features are being generated
+        boolean hollowCanopy = SpaghettiTreesConfig.HOLLOW_CANOPY && config.trunkPlacer instanceof BetterTrunkPlacer;
+        LongSet blockedLogs = BLOCKED_LOGS.get();
+        PendingDecorations.add(world.getChunk(origin), origin, featureId, seed, hollowCanopy, blockedLogs.toLongArray());
+        blockedLogs.clear();
+        return true;
+    }
+}
@@ -0,0 +1,23 @@
+package dev.arthomnix.spaghettitrees.decoration;
+
+import net.minecraft.util.Identifier;
+import net.minecraft.util.math.BlockPos;
+
+// A generated tree whose decorators haven't been run yet, as unpacked from its chunk by PendingDecorations. The seed regenerates the tree's shape and the random its decorators use.
+public class PendingDecoration {
+    public final BlockPos origin;
+    public final Identifier featureId;
+    public final long seed;
+    // whether the tree was generated with a hollow canopy, so only the leaves it kept were placed
+    public final boolean hollowCanopy;
+    // positions the seed places logs at that already held another tree's logs, packed with BlockPos.asLong
+    public final long[] blockedLogs;
+
+    public PendingDecoration(BlockPos origin, Identifier featureId, long seed, boolean hollowCanopy, long[] blockedLogs) {
+        this.origin = origin;
+        this.featureId = featureId;
+        this.seed = seed;
+        this.hollowCanopy = hollowCanopy;
+        this.blockedLogs = blockedLogs;
+    }
+}
@@ -0,0 +1,213 @@
+package dev.arthomnix.spaghettitrees.decoration;
+
+import dev.arthomnix.spaghettitrees.lighting.DeferredTreeLighting;
+import dev.arthomnix.spaghettitrees.sim.SimulatedTree;
+import dev.arthomnix.spaghettitrees.sim.StubWorld;
+import dev.arthomnix.spaghettitrees.sim.TreeSimulator;
+import dev.arthomnix.spaghettitrees.tree.HollowCanopy;
+import dev.arthomnix.spaghettitrees.util.SpaghettiTreesMetrics;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.LeavesBlock;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtElement;
+import net.minecraft.nbt.NbtList;
+import net.minecraft.nbt.NbtString;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.registry.Registry;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.WorldChunk;
+import net.minecraft.world.gen.feature.ConfiguredFeature;
+import net.minecraft.world.gen.feature.TreeFeatureConfig;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/*
+
+    Trees generated with lazy_decoration whose vines and beehives haven't been placed yet, kept with the chunk their origin is in (see PendingDecorationsHolder) and saved in its NBT.
+    Each tree is packed into HEADER_SIZE longs: its origin, its seed, and the index of its feature with the hollow canopy flag and the number of blocked logs above it, followed by the blocked logs (see LazyDecoration), of which there usually aren't any.
+    In memory the feature index is into FEATURES; in a saved chunk it is into a list of feature ids saved next to the records, so the indices don't have to stay the same across restarts.
+    Trees are only added while their chunk's features are being generated and only taken once it is a ticking WorldChunk, so a chunk's records are never changed from two threads at once. They are replaced rather than changed in place, so saving can read them from any thread.
+
+*/
+public class PendingDecorations {
+    private static final Logger LOGGER = LogManager.getLogger("SpaghettiTrees");
+    private static final String NBT_KEY = "spaghettitrees:pending_decorations";
+    private static final int HEADER_SIZE = 3;
+    private static final long FEATURE_INDEX_MASK = 0xFFFFFFFFL;
+    private static final long HOLLOW_CANOPY_BIT = 1L << 32;
+    private static final int BLOCKED_LOGS_SHIFT = 33;
+
+    private static final LongAdder DEFERRED = SpaghettiTreesMetrics.counter("lazy_decoration.deferred");
+    private static final LongAdder DECORATED = SpaghettiTreesMetrics.counter("lazy_decoration.decorated");
+
+    // the feature of every tree deferred since the server started, by index
+    private static final List<Identifier> FEATURES = new CopyOnWriteArrayList<>();
+    private static final Map<Identifier, Integer> FEATURE_INDICES = new ConcurrentHashMap<>();
+
+    private static int getFeatureIndex(Identifier featureId) {
+        Integer index = FEATURE_INDICES.get(featureId);
+        if (index != null) return index;
+        synchronized (FEATURES) {
+            return FEATURE_INDICES.computeIfAbsent(featureId, id -> {
+                FEATURES.add(id);
+                return FEATURES.size() - 1;
+            });
+        }
+    }
+
+    public static void add(Chunk chunk, BlockPos origin, Identifier featureId, long seed, boolean hollowCanopy, long[] blockedLogs) {
+        PendingDecorationsHolder holder = (PendingDecorationsHolder) chunk;
+        long[] trees = holder.getPendingDecorations();
+        int length = trees == null ? 0 : trees.length;
+        long[] added = trees == null ? new long[HEADER_SIZE + blockedLogs.length] : Arrays.copyOf(trees, length + HEADER_SIZE + blockedLogs.length);
+        added[length] = origin.asLong();
+        added[length + 1] = seed;
+        added[length + 2] = getFeatureIndex(featureId) | (hollowCanopy ? HOLLOW_CANOPY_BIT : 0) | (long) blockedLogs.length << BLOCKED_LOGS_SHIFT;
+        System.arraycopy(blockedLogs, 0, added, length + HEADER_SIZE, blockedLogs.length);
+        holder.setPendingDecorations(added);
+        chunk.setShouldSave(true);
+        DEFERRED.increment();
+    }
+
+    // Called for every ticking chunk, so returns straight away unless there is something to do
+    public static void decorate(ServerWorld world, WorldChunk chunk) {
+        PendingDecorationsHolder holder = (PendingDecorationsHolder) chunk;
+        long[] trees = holder.getPendingDecorations();
+        if (trees == null) return;
+        // decorators can reach into the neighbouring chunks, the same as the tree itself could when it was generated
+        ChunkPos pos = chunk.getPos();
+        for (int x = -1; x <= 1; x++) {
+            for (int z = -1; z <= 1; z++) {
+                if (!world.getChunkManager().isChunkLoaded(pos.x + x, pos.z + z)) return;
+            }
+        }
+        holder.setPendingDecorations(null);
+        chunk.setShouldSave(true);
+        for (PendingDecoration tree : unpack(trees)) decorate(world, tree);
+    }
+
+    private static List<PendingDecoration> unpack(long[] trees) {
+        if (trees == null) return List.of();
+        List<PendingDecoration> list = new ArrayList<>();
+        for (int i = 0; i < trees.length; i = next(trees, i)) {
+            long header = trees[i + 2];
+            long[] blockedLogs = Arrays.copyOfRange(trees, i + HEADER_SIZE, next(trees, i));
+            list.add(new PendingDecoration(BlockPos.fromLong(trees[i]), FEATURES.get((int) (header & FEATURE_INDEX_MASK)), trees[i + 1], (header & HOLLOW_CANOPY_BIT) != 0, blockedLogs));
+        }
+        return list;
+    }
+
+    // Index of the record after the one at i
+    private static int next(long[] trees, int i) {
+        return i + HEADER_SIZE + (int) (trees[i + 2] >>> BLOCKED_LOGS_SHIFT);
+    }
+
+    private static void decorate(ServerWorld world, PendingDecoration tree) {
+        ConfiguredFeature<?, ?> feature = world.getRegistryManager().get(Registry.CONFIGURED_FEATURE_KEY).get(tree.featureId);
+        if (feature == null || !(feature.config() instanceof TreeFeatureConfig config)) return;
+        // regenerate the tree's shape, then keep the blocks it placed that are still there
+        SimulatedTree shape = TreeSimulator.simulateShape(config, tree.seed, tree.origin, new StubWorld(tree.origin.getY()));
+        Map<BlockPos, BlockState> written = new HashMap<>();
+        for (int i = 0; i < shape.positions.size(); i++) written.put(shape.positions.get(i), shape.states.get(i));
+        // another tree's logs that were in the way of this tree's logs or leaves can be the same block as this tree's, so they are left out by position
+        LongSet blockedLogs = new LongOpenHashSet(tree.blockedLogs);
+        Set<BlockPos> placedLogs = new HashSet<>();
+        for (BlockPos pos : shape.logs) {
+            if (!blockedLogs.contains(pos.asLong())) placedLogs.add(pos);
+        }
+        List<BlockPos> logs = TreeSimulator.sortedByY(stillPresent(world, placedLogs, written));
+        // decorators such as BeehiveTreeDecorator expect every tree to have logs, as a tree TreeFeature generated always does
+        if (logs.isEmpty()) return;
+        Set<BlockPos> placedLeaves = tree.hollowCanopy ? getKeptLeaves(shape, written, placedLogs, blockedLogs) : shape.leaves;
+        List<BlockPos> leaves = TreeSimulator.sortedByY(stillPresent(world, placedLeaves, written));
+        BiConsumer<BlockPos, BlockState> replacer = (pos, state) -> world.setBlockState(pos, state, 19);
+        Random random = shape.random;
+        DeferredTreeLighting.begin();
+        try {
+            config.decorators.forEach(decorator -> decorator.generate(world, replacer, random, logs, leaves));
+        } finally {
+            DeferredTreeLighting.flush();
+        }
+        DECORATED.increment();
+    }
+
+    // The leaves a hollow canopy placed, worked out again from the regenerated shape, so a neighbouring tree's leaves where this tree's were left out aren't taken for its own
+    private static Set<BlockPos> getKeptLeaves(SimulatedTree shape, Map<BlockPos, BlockState> written, Set<BlockPos> placedLogs, LongSet blockedLogs) {
+        HollowCanopy canopy = new HollowCanopy((pos, state) -> {}, (pos, state) -> {});
+        BiConsumer<BlockPos, BlockState> trunkReplacer = canopy.getTrunkReplacer();
+        BiConsumer<BlockPos, BlockState> foliageReplacer = canopy.getFoliageReplacer();
+        for (BlockPos pos : placedLogs) trunkReplacer.accept(pos, written.get(pos));
+        for (BlockPos pos : shape.leaves) {
+            if (!blockedLogs.contains(pos.asLong())) foliageReplacer.accept(pos, written.get(pos));
+        }
+        LongSet kept = canopy.getKeptLeaves();
+        Set<BlockPos> leaves = new HashSet<>();
+        for (BlockPos pos : shape.leaves) {
+            // anything that isn't a leaf never goes through the canopy
+            if (!(written.get(pos).getBlock() instanceof LeavesBlock) || kept.contains(pos.asLong())) leaves.add(pos);
+        }
+        return leaves;
+    }
+
+    private static Set<BlockPos> stillPresent(ServerWorld world, Set<BlockPos> positions, Map<BlockPos, BlockState> written) {
+        Set<BlockPos> present = new HashSet<>();
+        for (BlockPos pos : positions) {
+            if (world.getBlockState(pos).isOf(written.get(pos).getBlock())) present.add(pos);
+        }
+        return present;
+    }
+
+    // Called when a chunk is saved
+    public static void writeNbt(Chunk chunk, NbtCompound nbt) {
+        long[] trees = ((PendingDecorationsHolder) chunk).getPendingDecorations();
+        if (trees == null) return;
+        // the in-memory feature indices become indices into this chunk's own list of features
+        List<Identifier> features = new ArrayList<>();
+        long[] saved = trees.clone();
+        for (int i = 0; i < saved.length; i = next(saved, i)) {
+            Identifier featureId = FEATURES.get((int) (saved[i + 2] & FEATURE_INDEX_MASK));
+            int index = features.indexOf(featureId);
+            if (index < 0) {
+                index = features.size();
+                features.add(featureId);
+            }
+            saved[i + 2] = saved[i + 2] & ~FEATURE_INDEX_MASK | index;
+        }
+        NbtList featureList = new NbtList();
+        for (Identifier featureId : features) featureList.add(NbtString.of(featureId.toString()));
+        NbtCompound compound = new NbtCompound();
+        compound.put("features", featureList);
+        compound.putLongArray("trees", saved);
+        nbt.put(NBT_KEY, compound);
+    }
+
+    // Called when a chunk is loaded
+    public static void readNbt(Chunk chunk, NbtCompound nbt) {
+        if (!nbt.contains(NBT_KEY, NbtElement.COMPOUND_TYPE)) return;
+        NbtCompound compound = nbt.getCompound(NBT_KEY);
+        NbtList featureList = compound.getList("features", NbtElement.STRING_TYPE);
+        int[] indices = new int[featureList.size()];
+        for (int i = 0; i < indices.length; i++) indices[i] = getFeatureIndex(new Identifier(featureList.getString(i)));
+        long[] trees = compound.getLongArray("trees");
+        // records saved before blocked logs were kept have nothing above the feature index, so they read as trees without any
+        for (int i = 0; i < trees.length; i = next(trees, i)) {
+            if (i + HEADER_SIZE > trees.length || next(trees, i) < i + HEADER_SIZE || next(trees, i) > trees.length || (trees[i + 2] & FEATURE_INDEX_MASK) >= indices.length) {
+                LOGGER.error("Discarding corrupt pending tree decorations in chunk {}", chunk.getPos());
+                return;
+            }
+            trees[i + 2] = trees[i + 2] & ~FEATURE_INDEX_MASK | indices[(int) (trees[i + 2] & FEATURE_INDEX_MASK)];
+        }
+        if (trees.length > 0) ((PendingDecorationsHolder) chunk).setPendingDecorations(trees);
+    }
+}
@@ -0,0 +1,8 @@
+package dev.arthomnix.spaghettitrees.decoration;
+
+// Implemented by every Chunk through ChunkMixin. Holds the chunk's trees waiting for decoration as packed by PendingDecorations, or null if there are none.
+public interface PendingDecorationsHolder {
+    long[] getPendingDecorations();
+
+    void setPendingDecorations(long[] trees);
+}
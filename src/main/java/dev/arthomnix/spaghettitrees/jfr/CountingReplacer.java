@@ -0,0 +1,45 @@
+package dev.arthomnix.spaghettitrees.jfr;
+
+import dev.arthomnix.spaghettitrees.tree.BranchingListener;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+
+import java.util.function.BiConsumer;
+
+// Only wrapped around a replacer while an event is being recorded, so disabled events don't pay for the extra call
+// Passed to a BetterTrunkPlacer as the trunk replacer, it also keeps the branching the placer reports
+public class CountingReplacer implements BranchingListener {
+    private final BiConsumer<BlockPos, BlockState> delegate;
+    private int count = 0;
+    private int branchCount = 0;
+    private int maxDepth = 0;
+
+    public CountingReplacer(BiConsumer<BlockPos, BlockState> delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void accept(BlockPos pos, BlockState state) {
+        count++;
+        delegate.accept(pos, state);
+    }
+
+    @Override
+    public void onBranching(int branchCount, int maxDepth) {
+        this.branchCount = branchCount;
+        this.maxDepth = maxDepth;
+        if (delegate instanceof BranchingListener listener) listener.onBranching(branchCount, maxDepth);
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getBranchCount() {
+        return branchCount;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+}
@@ -0,0 +1,26 @@
+package dev.arthomnix.spaghettitrees.jfr;
+
+import jdk.jfr.*;
+
+@Name("spaghettitrees.FoliagePlacement")
+@Label("Foliage Placement")
+@Category({"SpaghettiTrees", "Tree Generation"})
+@Description("A foliage placer generating the leaves around one foliage node")
+@Enabled(false)
+@StackTrace(false)
+public class FoliagePlacementEvent extends Event {
+    @Label("Feature")
+    public String featureId;
+
+    @Label("Foliage Placer")
+    public String foliagePlacer;
+
+    @Label("Leaf Count")
+    public int leafCount;
+
+    @Label("Radius")
+    public int radius;
+
+    @Label("Height")
+    public int height;
+}
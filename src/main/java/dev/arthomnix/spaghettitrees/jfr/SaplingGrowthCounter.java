@@ -0,0 +1,63 @@
+package dev.arthomnix.spaghettitrees.jfr;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+
+import java.util.function.BiConsumer;
+
+// Counts what the tree a sapling grows into places, for SaplingGrowthEvent. Only active on the thread growing the sapling, and only while the event is enabled.
+public class SaplingGrowthCounter {
+    private static final ThreadLocal<SaplingGrowthCounter> CURRENT = new ThreadLocal<>();
+
+    private CountingReplacer trunk;
+    private CountingReplacer foliage;
+    private CountingReplacer decorations;
+
+    public static SaplingGrowthCounter begin() {
+        SaplingGrowthCounter counter = new SaplingGrowthCounter();
+        CURRENT.set(counter);
+        return counter;
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    // The counter for the sapling growing on this thread, or null if none is being recorded
+    public static SaplingGrowthCounter get() {
+        return CURRENT.get();
+    }
+
+    public BiConsumer<BlockPos, BlockState> countTrunk(BiConsumer<BlockPos, BlockState> replacer) {
+        return trunk = new CountingReplacer(replacer);
+    }
+
+    public BiConsumer<BlockPos, BlockState> countFoliage(BiConsumer<BlockPos, BlockState> replacer) {
+        return foliage = new CountingReplacer(replacer);
+    }
+
+    // The decorations are counted by the same CountingReplacer as TreeDecoratorEvent's, so takes it rather than wrapping again
+    public void countDecorations(CountingReplacer replacer) {
+        decorations = replacer;
+    }
+
+    public int getLogCount() {
+        return trunk == null ? 0 : trunk.getCount();
+    }
+
+    public int getLeafCount() {
+        return foliage == null ? 0 : foliage.getCount();
+    }
+
+    public int getDecorationCount() {
+        return decorations == null ? 0 : decorations.getCount();
+    }
+
+    public int getBranchCount() {
+        return trunk == null ? 0 : trunk.getBranchCount();
+    }
+
+    public int getMaxDepth() {
+        return trunk == null ? 0 : trunk.getMaxDepth();
+    }
+}
@@ -0,0 +1,44 @@
+package dev.arthomnix.spaghettitrees.jfr;
+
+import jdk.jfr.*;
+
+@Name("spaghettitrees.SaplingGrowth")
+@Label("Sapling Growth")
+@Category({"SpaghettiTrees", "Tree Generation"})
+@Description("A spaghettitrees sapling attempting to grow into a tree")
+@Enabled(false)
+@StackTrace(false)
+public class SaplingGrowthEvent extends Event {
+    @Label("Feature")
+    public String featureId;
+
+    @Label("X")
+    public int x;
+
+    @Label("Y")
+    public int y;
+
+    @Label("Z")
+    public int z;
+
+    @Label("Success")
+    public boolean success;
+
+    @Label("Block Count")
+    public int blockCount;
+
+    @Label("Log Count")
+    public int logCount;
+
+    @Label("Leaf Count")
+    public int leafCount;
+
+    @Label("Decoration Count")
+    public int decorationCount;
+
+    @Label("Branch Count")
+    public int branchCount;
+
+    @Label("Max Depth")
+    public int maxDepth;
+}
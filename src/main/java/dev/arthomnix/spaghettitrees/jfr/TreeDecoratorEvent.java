@@ -0,0 +1,20 @@
+package dev.arthomnix.spaghettitrees.jfr;
+
+import jdk.jfr.*;
+
+@Name("spaghettitrees.TreeDecorator")
+@Label("Tree Decorator")
+@Category({"SpaghettiTrees", "Tree Generation"})
+@Description("A tree decorator (vines, beehives, ...) applied to one generated tree")
+@Enabled(false)
+@StackTrace(false)
+public class TreeDecoratorEvent extends Event {
+    @Label("Feature")
+    public String featureId;
+
+    @Label("Decorator")
+    public String decorator;
+
+    @Label("Block Count")
+    public int blockCount;
+}
@@ -0,0 +1,26 @@
+package dev.arthomnix.spaghettitrees.jfr;
+
+import jdk.jfr.*;
+
+@Name("spaghettitrees.TrunkPlacement")
+@Label("Trunk Placement")
+@Category({"SpaghettiTrees", "Tree Generation"})
+@Description("A BetterTrunkPlacer generating the trunk and branches of one tree")
+@Enabled(false)
+@StackTrace(false)
+public class TrunkPlacementEvent extends Event {
+    @Label("Feature")
+    public String featureId;
+
+    @Label("Log Count")
+    public int logCount;
+
+    @Label("Branch Count")
+    public int branchCount;
+
+    @Label("Max Depth")
+    public int maxDepth;
+
+    @Label("Foliage Node Count")
+    public int foliageNodeCount;
+}
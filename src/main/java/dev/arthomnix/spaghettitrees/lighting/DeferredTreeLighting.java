@@ -0,0 +1,64 @@
+package dev.arthomnix.spaghettitrees.lighting;
+
+import dev.arthomnix.spaghettitrees.config.SpaghettiTreesConfig;
+import dev.arthomnix.spaghettitrees.util.SpaghettiTreesMetrics;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.chunk.light.LightingProvider;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+
+    With deferred_tree_lighting enabled, the light checks that World.setBlockState and ProtoChunk.setBlockState would queue for each block a tree writes are held back until the whole tree has been placed.
+    Trees write many positions more than once (overlapping branches, leaves written over each other), so the held back checks are deduplicated and queued once per position, column by column from the top down, so each column's sky light is settled by its highest change first.
+    A single check per column isn't enough: the light engine only relights the positions it's told about and their neighbours, and a tree changes blocks that are lit from the side.
+
+*/
+public class DeferredTreeLighting {
+    private static final LongAdder REQUESTED = SpaghettiTreesMetrics.counter("tree_lighting.checks_requested");
+    private static final LongAdder QUEUED = SpaghettiTreesMetrics.counter("tree_lighting.checks_queued");
+
+    // light checks held back on this thread for the tree being placed, by lighting provider (normally just the one)
+    private static final ThreadLocal<Map<LightingProvider, LongSet>> PENDING = new ThreadLocal<>();
+
+    public static void begin() {
+        if (SpaghettiTreesConfig.DEFERRED_TREE_LIGHTING) PENDING.set(new IdentityHashMap<>());
+    }
+
+    // Returns false if the check should be queued straight away
+    public static boolean defer(LightingProvider provider, BlockPos pos) {
+        Map<LightingProvider, LongSet> pending = PENDING.get();
+        if (pending == null) return false;
+        pending.computeIfAbsent(provider, key -> new LongOpenHashSet()).add(pos.asLong());
+        REQUESTED.increment();
+        return true;
+    }
+
+    public static void flush() {
+        Map<LightingProvider, LongSet> pending = PENDING.get();
+        if (pending == null) return;
+        PENDING.remove();
+        BlockPos.Mutable pos = new BlockPos.Mutable();
+        for (Map.Entry<LightingProvider, LongSet> entry : pending.entrySet()) {
+            LongList positions = new LongArrayList(entry.getValue());
+            // by column, then from the top down
+            positions.sort((a, b) -> {
+                int x = Integer.compare(BlockPos.unpackLongX(a), BlockPos.unpackLongX(b));
+                if (x != 0) return x;
+                int z = Integer.compare(BlockPos.unpackLongZ(a), BlockPos.unpackLongZ(b));
+                if (z != 0) return z;
+                return Integer.compare(BlockPos.unpackLongY(b), BlockPos.unpackLongY(a));
+            });
+            for (int i = 0; i < positions.size(); i++) {
+                entry.getKey().checkBlock(pos.set(positions.getLong(i)).toImmutable());
+            }
+            QUEUED.add(positions.size());
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package dev.arthomnix.spaghettitrees.mixin;
+
+import dev.arthomnix.spaghettitrees.decoration.HiveBudget;
+import dev.arthomnix.spaghettitrees.decoration.HiveBudgetHolder;
+import net.minecraft.block.entity.BeehiveBlockEntity;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.world.StructureWorldAccess;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(BeehiveBlockEntity.class)
+public class BeehiveBlockEntityMixin {
+    @Inject(method = "addBee(Lnet/minecraft/nbt/NbtCompound;IZ)V", at = @At("HEAD"), cancellable = true)
+    // only applies to bees added by BeehiveTreeDecorator, since that's the only time the current world is set
+    private void addBeeWithinBudget(NbtCompound bee, int ticksInHive, boolean hasNectar, CallbackInfo ci) {
+        StructureWorldAccess world = HiveBudget.getCurrentWorld();
+        if (world == null) return;
+        if (!((HiveBudgetHolder) world.toServerWorld()).getHiveBudget().tryAddBee(world, ((BeehiveBlockEntity) (Object) this).getPos())) ci.cancel();
+    }
+}
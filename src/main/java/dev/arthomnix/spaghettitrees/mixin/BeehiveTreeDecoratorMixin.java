@@ -0,0 +1,41 @@
+package dev.arthomnix.spaghettitrees.mixin;
+
+import dev.arthomnix.spaghettitrees.decoration.HiveBudget;
+import dev.arthomnix.spaghettitrees.decoration.HiveBudgetHolder;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.StructureWorldAccess;
+import net.minecraft.world.TestableWorld;
+import net.minecraft.world.gen.treedecorator.BeehiveTreeDecorator;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.Redirect;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+import java.util.List;
+import java.util.Random;
+import java.util.function.BiConsumer;
+
+@Mixin(BeehiveTreeDecorator.class)
+public class BeehiveTreeDecoratorMixin {
+    @Inject(method = "generate", at = @At("HEAD"))
+    // remember the world so BeehiveBlockEntityMixin can find the budget when the bees are added
+    private void setHiveBudgetWorld(TestableWorld world, BiConsumer<BlockPos, BlockState> replacer, Random random, List<BlockPos> logPositions, List<BlockPos> leavesPositions, CallbackInfo ci) {
+        // TreeSimulator's StubWorld has no budget
+        HiveBudget.setCurrentWorld(HiveBudget.isEnabled() && world instanceof StructureWorldAccess structureWorld ? structureWorld : null);
+    }
+
+    @Inject(method = "generate", at = @At("RETURN"))
+    private void clearHiveBudgetWorld(TestableWorld world, BiConsumer<BlockPos, BlockState> replacer, Random random, List<BlockPos> logPositions, List<BlockPos> leavesPositions, CallbackInfo ci) {
+        HiveBudget.setCurrentWorld(null);
+    }
+
+    @Redirect(method = "generate", at = @At(value = "INVOKE", target = "java/util/function/BiConsumer.accept (Ljava/lang/Object;Ljava/lang/Object;)V"))
+    // leave the hive out if its region is over budget
+    private void placeHiveWithinBudget(BiConsumer<BlockPos, BlockState> replacer, Object pos, Object state) {
+        StructureWorldAccess world = HiveBudget.getCurrentWorld();
+        if (world != null && !((HiveBudgetHolder) world.toServerWorld()).getHiveBudget().tryPlaceHive((BlockPos) pos)) return;
+        replacer.accept((BlockPos) pos, (BlockState) state);
+    }
+}
@@ -0,0 +1,29 @@
+package dev.arthomnix.spaghettitrees.mixin;
+
+import dev.arthomnix.spaghettitrees.util.StartupTimer;
+import net.minecraft.Bootstrap;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(Bootstrap.class)
+public class BootstrapMixin {
+    @Shadow private static volatile boolean initialized;
+
+    @Unique
+    private static long bootstrapStart = 0;
+
+    @Inject(method = "initialize", at = @At("HEAD"))
+    // initialize is called more than once but only does anything the first time
+    private static void startBootstrapTiming(CallbackInfo ci) {
+        if (!initialized && bootstrapStart == 0) bootstrapStart = System.nanoTime();
+    }
+
+    @Inject(method = "initialize", at = @At("RETURN"))
+    private static void reportStartupTime(CallbackInfo ci) {
+        if (bootstrapStart != 0) StartupTimer.report(System.nanoTime() - bootstrapStart);
+    }
+}
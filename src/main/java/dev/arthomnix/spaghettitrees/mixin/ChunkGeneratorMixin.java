@@ -0,0 +1,54 @@
+package dev.arthomnix.spaghettitrees.mixin;
+
+import dev.arthomnix.spaghettitrees.placement.ShapePrefetcher;
+import dev.arthomnix.spaghettitrees.util.FeatureTiming;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.StructureWorldAccess;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.gen.StructureAccessor;
+import net.minecraft.world.gen.chunk.ChunkGenerator;
+import net.minecraft.world.gen.feature.PlacedFeature;
+import net.minecraft.world.gen.random.ChunkRandom;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.Redirect;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+import java.util.Random;
+
+@Mixin(ChunkGenerator.class)
+public class ChunkGeneratorMixin {
+    @Inject(method = "generateFeatures", at = @At("HEAD"))
+    private void startFeatureTiming(CallbackInfo ci) {
+        FeatureTiming.startFeatures();
+    }
+
+    @Inject(method = "generateFeatures", at = @At("RETURN"))
+    private void endFeatureTiming(CallbackInfo ci) {
+        FeatureTiming.endFeatures();
+    }
+
+    @Inject(method = "generateFeatures", at = @At("HEAD"))
+    private void startShapePrefetch(StructureWorldAccess world, Chunk chunk, StructureAccessor structureAccessor, CallbackInfo ci) {
+        ShapePrefetcher.startChunk(world, (ChunkGenerator) (Object) this, chunk.getPos());
+    }
+
+    @Inject(method = "generateFeatures", at = @At("RETURN"))
+    private void endShapePrefetch(CallbackInfo ci) {
+        ShapePrefetcher.endChunk();
+    }
+
+    @Redirect(method = "generateFeatures", at = @At(value = "INVOKE", target = "net/minecraft/world/gen/random/ChunkRandom.setDecoratorSeed (JII)J"))
+    // the index and step a feature's random is seeded with, which ShapePrefetcher needs to seed the same random ahead of time
+    private long rememberFeatureIndex(ChunkRandom random, long populationSeed, int index, int step) {
+        ShapePrefetcher.setNextFeatureIndex(index, step);
+        return random.setDecoratorSeed(populationSeed, index, step);
+    }
+
+    @Redirect(method = "generateFeatures", at = @At(value = "INVOKE", target = "net/minecraft/world/gen/feature/PlacedFeature.generate (Lnet/minecraft/world/StructureWorldAccess;Lnet/minecraft/world/gen/chunk/ChunkGenerator;Ljava/util/Random;Lnet/minecraft/util/math/BlockPos;)Z"))
+    private boolean learnFeatureIndex(PlacedFeature feature, StructureWorldAccess world, ChunkGenerator generator, Random random, BlockPos pos) {
+        ShapePrefetcher.onPlaceFeature((ChunkGenerator) (Object) this, feature);
+        return feature.generate(world, generator, random, pos);
+    }
+}
@@ -0,0 +1,22 @@
+package dev.arthomnix.spaghettitrees.mixin;
+
+import dev.arthomnix.spaghettitrees.decoration.PendingDecorationsHolder;
+import net.minecraft.world.chunk.Chunk;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
+
+@Mixin(Chunk.class)
+public class ChunkMixin implements PendingDecorationsHolder {
+    @Unique
+    private volatile long[] pendingDecorations;
+
+    @Override
+    public long[] getPendingDecorations() {
+        return pendingDecorations;
+    }
+
+    @Override
+    public void setPendingDecorations(long[] trees) {
+        pendingDecorations = trees;
+    }
+}
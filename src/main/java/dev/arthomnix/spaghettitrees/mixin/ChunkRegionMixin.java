@@ -0,0 +1,21 @@
+package dev.arthomnix.spaghettitrees.mixin;
+
+import dev.arthomnix.spaghettitrees.sim.TreeTraceRecorder;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.ChunkRegion;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+import java.util.function.Predicate;
+
+@Mixin(ChunkRegion.class)
+public class ChunkRegionMixin {
+    @Inject(method = "testBlockState", at = @At("HEAD"))
+    // a tree being traced keeps what it saw around it, so TreeTraceReplay can rebuild it
+    private void recordTreeRead(BlockPos pos, Predicate<BlockState> state, CallbackInfoReturnable<Boolean> cir) {
+        if (TreeTraceRecorder.isRecording()) TreeTraceRecorder.recordRead(pos, ((ChunkRegion) (Object) this).getBlockState(pos));
+    }
+}
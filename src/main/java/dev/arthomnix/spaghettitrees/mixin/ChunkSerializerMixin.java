@@ -0,0 +1,30 @@
+package dev.arthomnix.spaghettitrees.mixin;
+
+import dev.arthomnix.spaghettitrees.decoration.PendingDecorations;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.ChunkSerializer;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.ProtoChunk;
+import net.minecraft.world.chunk.ReadOnlyChunk;
+import net.minecraft.world.poi.PointOfInterestStorage;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+@Mixin(ChunkSerializer.class)
+public class ChunkSerializerMixin {
+    @Inject(method = "serialize", at = @At("RETURN"))
+    private static void writePendingDecorations(ServerWorld world, Chunk chunk, CallbackInfoReturnable<NbtCompound> cir) {
+        PendingDecorations.writeNbt(chunk instanceof ReadOnlyChunk readOnly ? readOnly.getWrappedChunk() : chunk, cir.getReturnValue());
+    }
+
+    @Inject(method = "deserialize", at = @At("RETURN"))
+    // full chunks are loaded as a ReadOnlyChunk around the WorldChunk that will actually be used
+    private static void readPendingDecorations(ServerWorld world, PointOfInterestStorage poiStorage, ChunkPos chunkPos, NbtCompound nbt, CallbackInfoReturnable<ProtoChunk> cir) {
+        ProtoChunk chunk = cir.getReturnValue();
+        PendingDecorations.readNbt(chunk instanceof ReadOnlyChunk readOnly ? readOnly.getWrappedChunk() : chunk, nbt);
+    }
+}
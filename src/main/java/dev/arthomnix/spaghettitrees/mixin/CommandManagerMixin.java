@@ -0,0 +1,22 @@
+package dev.arthomnix.spaghettitrees.mixin;
+
+import com.mojang.brigadier.CommandDispatcher;
+import dev.arthomnix.spaghettitrees.command.SpaghettiTreesCommand;
+import net.minecraft.server.command.CommandManager;
+import net.minecraft.server.command.ServerCommandSource;
+import org.spongepowered.asm.mixin.Final;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(CommandManager.class)
+public class CommandManagerMixin {
+    @Shadow @Final private CommandDispatcher<ServerCommandSource> dispatcher;
+
+    @Inject(method = "<init>", at = @At("RETURN"))
+    private void registerSpaghettiTreesCommand(CommandManager.RegistrationEnvironment environment, CallbackInfo ci) {
+        SpaghettiTreesCommand.register(dispatcher);
+    }
+}
@@ -0,0 +1,21 @@
+package dev.arthomnix.spaghettitrees.mixin;
+
+import dev.arthomnix.spaghettitrees.util.FeatureTiming;
+import net.minecraft.world.chunk.light.LightingProvider;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+@Mixin(LightingProvider.class)
+public class LightingProviderMixin {
+    @Inject(method = "doLightUpdates", at = @At("HEAD"))
+    private void startLightTiming(CallbackInfoReturnable<Integer> cir) {
+        FeatureTiming.startLight();
+    }
+
+    @Inject(method = "doLightUpdates", at = @At("RETURN"))
+    private void endLightTiming(CallbackInfoReturnable<Integer> cir) {
+        FeatureTiming.endLight();
+    }
+}
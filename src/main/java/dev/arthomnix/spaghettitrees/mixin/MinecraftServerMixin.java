@@ -0,0 +1,18 @@
+package dev.arthomnix.spaghettitrees.mixin;
+
+import dev.arthomnix.spaghettitrees.config.SpaghettiTreesConfig;
+import dev.arthomnix.spaghettitrees.sim.TreeWarmup;
+import net.minecraft.server.MinecraftServer;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(MinecraftServer.class)
+public class MinecraftServerMixin {
+    @Inject(method = "loadWorld", at = @At("RETURN"))
+    // after the spawn chunks are generated, so warm-up doesn't compete with them
+    private void startTreeWarmup(CallbackInfo ci) {
+        if (SpaghettiTreesConfig.JIT_WARMUP) TreeWarmup.start();
+    }
+}
@@ -0,0 +1,19 @@
+package dev.arthomnix.spaghettitrees.mixin;
+
+import dev.arthomnix.spaghettitrees.lighting.DeferredTreeLighting;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.chunk.ProtoChunk;
+import net.minecraft.world.chunk.light.LightingProvider;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Redirect;
+
+@Mixin(ProtoChunk.class)
+public class ProtoChunkMixin {
+    @Redirect(method = "setBlockState(Lnet/minecraft/util/math/BlockPos;Lnet/minecraft/block/BlockState;Z)Lnet/minecraft/block/BlockState;",
+    at = @At(value = "INVOKE", target = "net/minecraft/world/chunk/light/LightingProvider.checkBlock (Lnet/minecraft/util/math/BlockPos;)V"))
+    // during worldgen this only happens for writes into neighbouring chunks that have already had their features placed
+    private void deferTreeLightCheck(LightingProvider provider, BlockPos pos) {
+        if (!DeferredTreeLighting.defer(provider, pos)) provider.checkBlock(pos);
+    }
+}
@@ -0,0 +1,13 @@
+package dev.arthomnix.spaghettitrees.mixin;
+
+import net.minecraft.block.sapling.SaplingGenerator;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.WorldAccess;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Invoker;
+
+@Mixin(SaplingGenerator.class)
+public interface SaplingGeneratorInvoker {
+    @Invoker
+    boolean callAreFlowersNearby(WorldAccess world, BlockPos pos);
+}
@@ -0,0 +1,44 @@
+package dev.arthomnix.spaghettitrees.mixin;
+
+import dev.arthomnix.spaghettitrees.decoration.HiveBudget;
+import dev.arthomnix.spaghettitrees.decoration.HiveBudgetHolder;
+import dev.arthomnix.spaghettitrees.decoration.PendingDecorations;
+import dev.arthomnix.spaghettitrees.sapling.SaplingFailureCache;
+import dev.arthomnix.spaghettitrees.sapling.SaplingFailureCacheHolder;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.world.chunk.WorldChunk;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(ServerWorld.class)
+public class ServerWorldMixin implements HiveBudgetHolder, SaplingFailureCacheHolder {
+    @Unique
+    private HiveBudget hiveBudget;
+    @Unique
+    private final SaplingFailureCache saplingFailureCache = new SaplingFailureCache();
+
+    @Inject(method = "<init>", at = @At("RETURN"))
+    private void loadPersistentStates(CallbackInfo ci) {
+        hiveBudget = ((ServerWorld) (Object) this).getPersistentStateManager().getOrCreate(HiveBudget::fromNbt, HiveBudget::new, HiveBudget.ID);
+    }
+
+    @Inject(method = "tickChunk(Lnet/minecraft/world/chunk/WorldChunk;I)V", at = @At("HEAD"))
+    // chunks only tick near players, so this is where lazily decorated trees get their decorations and hives get their bees
+    private void decoratePendingTrees(WorldChunk chunk, int randomTickSpeed, CallbackInfo ci) {
+        PendingDecorations.decorate((ServerWorld) (Object) this, chunk);
+        hiveBudget.populateBees((ServerWorld) (Object) this, chunk.getPos());
+    }
+
+    @Override
+    public HiveBudget getHiveBudget() {
+        return hiveBudget;
+    }
+
+    @Override
+    public SaplingFailureCache getSaplingFailureCache() {
+        return saplingFailureCache;
+    }
+}
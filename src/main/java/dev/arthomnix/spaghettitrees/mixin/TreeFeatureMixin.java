@@ -1,28 +1,196 @@
 package dev.arthomnix.spaghettitrees.mixin;
 
+import dev.arthomnix.spaghettitrees.config.SpaghettiTreesConfig;
+import dev.arthomnix.spaghettitrees.decoration.LazyDecoration;
+import dev.arthomnix.spaghettitrees.jfr.CountingReplacer;
+import dev.arthomnix.spaghettitrees.jfr.SaplingGrowthCounter;
+import dev.arthomnix.spaghettitrees.jfr.TreeDecoratorEvent;
+import dev.arthomnix.spaghettitrees.lighting.DeferredTreeLighting;
+import dev.arthomnix.spaghettitrees.placement.ChunkFeaturePass;
+import dev.arthomnix.spaghettitrees.placement.ShapePrefetcher;
+import dev.arthomnix.spaghettitrees.placement.TreeSpacingIndex;
+import dev.arthomnix.spaghettitrees.sim.SimulatedTree;
+import dev.arthomnix.spaghettitrees.sim.TreeTraceRecorder;
+import dev.arthomnix.spaghettitrees.tree.BetterTrunkPlacer;
+import dev.arthomnix.spaghettitrees.tree.HollowCanopy;
+import dev.arthomnix.spaghettitrees.util.FeatureTiming;
+import dev.arthomnix.spaghettitrees.util.FoliageUtil;
+import dev.arthomnix.spaghettitrees.util.RegistryUtil;
 import net.minecraft.block.BlockState;
 import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.StructureWorldAccess;
 import net.minecraft.world.TestableWorld;
 import net.minecraft.world.gen.feature.TreeFeature;
 import net.minecraft.world.gen.feature.TreeFeatureConfig;
+import net.minecraft.world.gen.feature.util.FeatureContext;
 import net.minecraft.world.gen.foliage.FoliagePlacer;
+import net.minecraft.world.gen.treedecorator.TreeDecorator;
 import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.Unique;
 import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.ModifyVariable;
 import org.spongepowered.asm.mixin.injection.Redirect;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 
+import java.util.List;
 import java.util.Random;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 @Mixin(TreeFeature.class)
 public class TreeFeatureMixin {
+    // TreeFeature's own decoration replacer for the tree being generated on this thread
+    @Unique
+    private static final ThreadLocal<BiConsumer<BlockPos, BlockState>> DECORATION_REPLACER = new ThreadLocal<>();
+
+    @Shadow
+    private boolean generate(StructureWorldAccess world, Random random, BlockPos pos, BiConsumer<BlockPos, BlockState> trunkReplacer, BiConsumer<BlockPos, BlockState> foliageReplacer, TreeFeatureConfig config) {
+        throw new IllegalStateException();
+    }
+
     @Redirect(method = "method_27372(Lnet/minecraft/world/gen/feature/TreeFeatureConfig;Lnet/minecraft/world/StructureWorldAccess;Ljava/util/function/BiConsumer;Ljava/util/Random;IIILnet/minecraft/world/gen/foliage/FoliagePlacer$TreeNode;)V",
     at = @At(value="INVOKE", target = "net/minecraft/world/gen/foliage/FoliagePlacer.generate (Lnet/minecraft/world/TestableWorld;Ljava/util/function/BiConsumer;Ljava/util/Random;Lnet/minecraft/world/gen/feature/TreeFeatureConfig;ILnet/minecraft/world/gen/foliage/FoliagePlacer$TreeNode;II)V"))
     // generate a random height and radius for every foliage node rather than every tree
     private static void generateWithRandomizedFoliageRadius(FoliagePlacer instance, TestableWorld world, BiConsumer<BlockPos, BlockState> replacer, Random random, TreeFeatureConfig config, int trunkHeight, FoliagePlacer.TreeNode treeNode, int foliageHeight, int radius) {
-        int height = config.trunkPlacer.getHeight(random);
-        int randomHeight = instance.getRandomHeight(random, height, config);
-        int baseHeight = height - randomHeight;
-        int randomRadius = instance.getRandomRadius(random, baseHeight);
-        instance.generate(world, replacer, random, config, trunkHeight, treeNode, randomHeight, randomRadius);
+        FoliageUtil.generateWithRandomizedFoliageRadius(instance, world, replacer, random, config, trunkHeight, treeNode);
+    }
+
+    @Inject(method = "canReplace(Lnet/minecraft/world/TestableWorld;Lnet/minecraft/util/math/BlockPos;)Z", at = @At("RETURN"))
+    private static void recordNotReplaceable(TestableWorld world, BlockPos pos, CallbackInfoReturnable<Boolean> cir) {
+        if (!cir.getReturnValueZ()) LazyDecoration.onNotReplaceable(world, pos);
+    }
+
+    @Inject(method = "generate(Lnet/minecraft/world/gen/feature/util/FeatureContext;)Z", at = @At("HEAD"))
+    private void startTreeTiming(FeatureContext<TreeFeatureConfig> context, CallbackInfoReturnable<Boolean> cir) {
+        FeatureTiming.startTree();
+    }
+
+    @Inject(method = "generate(Lnet/minecraft/world/gen/feature/util/FeatureContext;)Z", at = @At("RETURN"))
+    // only spaghettitrees trees count towards the tree time, vanilla trees are part of the rest
+    private void endTreeTiming(FeatureContext<TreeFeatureConfig> context, CallbackInfoReturnable<Boolean> cir) {
+        if (RegistryUtil.getConfiguredFeatureIdentifier(context.getConfig()) != null) ShapePrefetcher.recordTreeTime(FeatureTiming.endTree());
+        TreeTraceRecorder.finish();
+        ShapePrefetcher.finishTree();
+        DECORATION_REPLACER.remove();
+    }
+
+    @ModifyVariable(method = "generate(Lnet/minecraft/world/gen/feature/util/FeatureContext;)Z", at = @At("STORE"), ordinal = 2)
+    // keep hold of the decoration replacer, which also collects the positions that make up the tree's bounding box, so decorators run separately still write through it
+    // while decorator or sapling events are recorded, it's wrapped to count the decorations
+    private BiConsumer<BlockPos, BlockState> captureDecorationReplacer(BiConsumer<BlockPos, BlockState> replacer) {
+        SaplingGrowthCounter sapling = SaplingGrowthCounter.get();
+        if (sapling != null || new TreeDecoratorEvent().isEnabled()) {
+            CountingReplacer counting = new CountingReplacer(replacer);
+            if (sapling != null) sapling.countDecorations(counting);
+            replacer = counting;
+        }
+        DECORATION_REPLACER.set(replacer);
+        return replacer;
+    }
+
+    @Redirect(method = "generate(Lnet/minecraft/world/gen/feature/util/FeatureContext;)Z",
+    at = @At(value = "INVOKE", target = "java/util/List.forEach (Ljava/util/function/Consumer;)V"))
+    // run each decorator separately so it can be recorded on its own
+    private void generateDecorators(List<TreeDecorator> decorators, Consumer<TreeDecorator> action, FeatureContext<TreeFeatureConfig> context) {
+        if (LazyDecoration.deferDecorators(context.getWorld(), context.getOrigin(), context.getConfig())) return;
+        if (TreeTraceRecorder.isRecording()) {
+            // same as TreeFeature's own decorator call, but with the writes also going into the trace, and the random and positions the recorded tree was generated with
+            StructureWorldAccess world = context.getWorld();
+            BiConsumer<BlockPos, BlockState> replacer = TreeTraceRecorder.recordDecoration(DECORATION_REPLACER.get());
+            Random random = TreeTraceRecorder.getRandom();
+            List<BlockPos> logs = TreeTraceRecorder.getLogs();
+            List<BlockPos> leaves = TreeTraceRecorder.getLeaves();
+            action = decorator -> decorator.generate(world, replacer, random, logs, leaves);
+        } else if (ShapePrefetcher.isGeneratingTree()) {
+            // a tree generated from its own seed for shape prefetching gives its decorators its own random, so they don't change how the feature's random is used
+            StructureWorldAccess world = context.getWorld();
+            BiConsumer<BlockPos, BlockState> replacer = DECORATION_REPLACER.get();
+            Random random = ShapePrefetcher.getRandom();
+            List<BlockPos> logs = ShapePrefetcher.getLogs();
+            List<BlockPos> leaves = ShapePrefetcher.getLeaves();
+            action = decorator -> decorator.generate(world, replacer, random, logs, leaves);
+        }
+        DeferredTreeLighting.begin();
+        try {
+            CountingReplacer counting = DECORATION_REPLACER.get() instanceof CountingReplacer countingReplacer ? countingReplacer : null;
+            for (TreeDecorator decorator : decorators) {
+                TreeDecoratorEvent event = new TreeDecoratorEvent();
+                event.begin();
+                int before = counting != null ? counting.getCount() : 0;
+                action.accept(decorator);
+                if (event.shouldCommit()) {
+                    event.featureId = RegistryUtil.getConfiguredFeatureId(context.getConfig());
+                    event.decorator = decorator.getClass().getSimpleName();
+                    event.blockCount = counting != null ? counting.getCount() - before : 0;
+                    event.commit();
+                }
+            }
+        } finally {
+            DeferredTreeLighting.flush();
+        }
+    }
+
+    @Redirect(method = "generate(Lnet/minecraft/world/gen/feature/util/FeatureContext;)Z",
+    at = @At(value = "INVOKE", target = "net/minecraft/world/gen/feature/TreeFeature.generate (Lnet/minecraft/world/StructureWorldAccess;Ljava/util/Random;Lnet/minecraft/util/math/BlockPos;Ljava/util/function/BiConsumer;Ljava/util/function/BiConsumer;Lnet/minecraft/world/gen/feature/TreeFeatureConfig;)Z"))
+    // with hollow canopies enabled, hold back a spaghetti tree's leaves until the whole canopy is known
+    // with lazy decoration, trace recording or shape prefetching enabled, generate the tree from a seed it can be regenerated (or predicted) from
+    private boolean generateWithHollowCanopy(TreeFeature instance, StructureWorldAccess world, Random random, BlockPos pos, BiConsumer<BlockPos, BlockState> trunkReplacer, BiConsumer<BlockPos, BlockState> foliageReplacer, TreeFeatureConfig config) {
+        boolean defer = LazyDecoration.shouldDefer(world, config);
+        boolean record = TreeTraceRecorder.shouldRecord(config);
+        boolean prefetch = ShapePrefetcher.shouldUseOwnSeed(world, config);
+        Long seed = null;
+        if (defer || record || prefetch) {
+            seed = random.nextLong();
+            random = new Random(seed);
+        }
+        LazyDecoration.begin(defer ? seed : null);
+        TreeTraceRecorder.begin(config, pos, record ? seed : null, random);
+        // a recorded tree has to run its placers so the blocks they check go into the trace
+        SimulatedTree shape = prefetch && !record && ShapePrefetcher.canPrefetch(config) ? ShapePrefetcher.take(world, pos, seed, config) : null;
+        ShapePrefetcher.beginTree(prefetch ? (shape != null ? shape.random : random) : null, shape != null);
+        if (prefetch) {
+            trunkReplacer = ShapePrefetcher.collectTrunk(trunkReplacer);
+            foliageReplacer = ShapePrefetcher.collectFoliage(foliageReplacer);
+        }
+
+        // a sapling's growth event counts what its tree places, so its leaves are counted as the hollow canopy places them, leaving out the ones it omits
+        SaplingGrowthCounter sapling = SaplingGrowthCounter.get();
+        if (sapling != null) foliageReplacer = sapling.countFoliage(foliageReplacer);
+
+        HollowCanopy canopy = null;
+        if (SpaghettiTreesConfig.HOLLOW_CANOPY && config.trunkPlacer instanceof BetterTrunkPlacer) {
+            canopy = new HollowCanopy(trunkReplacer, foliageReplacer);
+            trunkReplacer = canopy.getTrunkReplacer();
+            foliageReplacer = canopy.getFoliageReplacer();
+        }
+        // the trace records what the placers wrote, before the hollow canopy leaves anything out
+        if (record) {
+            trunkReplacer = TreeTraceRecorder.recordTrunk(trunkReplacer);
+            foliageReplacer = TreeTraceRecorder.recordFoliage(foliageReplacer);
+        }
+        // with tree spacing enabled, remember how far the tree's branches reach so later attempts in the chunk can avoid them
+        TreeSpacingIndex.Footprint footprint = TreeSpacingIndex.shouldRecord(world, config) ? new TreeSpacingIndex.Footprint(pos) : null;
+        if (footprint != null) trunkReplacer = footprint.wrap(trunkReplacer);
+        // the sapling's trunk counter is passed to the trunk placer as it is, so it also hears about the branching
+        if (sapling != null) trunkReplacer = sapling.countTrunk(trunkReplacer);
+        // light checks are held back until the trunk and leaves are all placed, and always released, even if generation fails
+        boolean generated;
+        DeferredTreeLighting.begin();
+        try {
+            if (shape != null) {
+                ShapePrefetcher.place(shape, trunkReplacer, foliageReplacer);
+                generated = true;
+            } else {
+                generated = generate(world, random, pos, trunkReplacer, foliageReplacer, config);
+            }
+            // a tree that failed to generate has no canopy to place
+            if (generated && canopy != null) canopy.placeLeaves();
+        } finally {
+            DeferredTreeLighting.flush();
+        }
+        if (generated && footprint != null) ChunkFeaturePass.get(world, pos).getTreeSpacingIndex().add(footprint);
+        return generated;
     }
 }
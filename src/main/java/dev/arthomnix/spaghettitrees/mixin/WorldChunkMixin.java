@@ -0,0 +1,19 @@
+package dev.arthomnix.spaghettitrees.mixin;
+
+import dev.arthomnix.spaghettitrees.decoration.PendingDecorationsHolder;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.world.chunk.ProtoChunk;
+import net.minecraft.world.chunk.WorldChunk;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(WorldChunk.class)
+public class WorldChunkMixin {
+    @Inject(method = "<init>(Lnet/minecraft/server/world/ServerWorld;Lnet/minecraft/world/chunk/ProtoChunk;Lnet/minecraft/world/chunk/WorldChunk$EntityLoader;)V", at = @At("RETURN"))
+    // trees deferred while the chunk was generating stay with it once it's a full chunk
+    private void copyPendingDecorations(ServerWorld world, ProtoChunk protoChunk, WorldChunk.EntityLoader entityLoader, CallbackInfo ci) {
+        ((PendingDecorationsHolder) this).setPendingDecorations(((PendingDecorationsHolder) protoChunk).getPendingDecorations());
+    }
+}
@@ -0,0 +1,38 @@
+package dev.arthomnix.spaghettitrees.mixin;
+
+import dev.arthomnix.spaghettitrees.lighting.DeferredTreeLighting;
+import dev.arthomnix.spaghettitrees.sapling.SaplingFailureCacheHolder;
+import dev.arthomnix.spaghettitrees.sim.TreeTraceRecorder;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.light.LightingProvider;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.Redirect;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+import java.util.function.Predicate;
+
+@Mixin(World.class)
+public class WorldMixin {
+    @Redirect(method = "setBlockState(Lnet/minecraft/util/math/BlockPos;Lnet/minecraft/block/BlockState;II)Z",
+    at = @At(value = "INVOKE", target = "net/minecraft/world/chunk/light/LightingProvider.checkBlock (Lnet/minecraft/util/math/BlockPos;)V"))
+    // saplings and lazily decorated trees write straight into the world
+    private void deferTreeLightCheck(LightingProvider provider, BlockPos pos) {
+        if (!DeferredTreeLighting.defer(provider, pos)) provider.checkBlock(pos);
+    }
+
+    @Inject(method = "setBlockState(Lnet/minecraft/util/math/BlockPos;Lnet/minecraft/block/BlockState;II)Z", at = @At("RETURN"))
+    // any change in a failed sapling's footprint might have made room for it
+    private void forgetSaplingFailures(BlockPos pos, BlockState state, int flags, int maxUpdateDepth, CallbackInfoReturnable<Boolean> cir) {
+        if (cir.getReturnValueZ() && (Object) this instanceof SaplingFailureCacheHolder holder) holder.getSaplingFailureCache().onBlockChanged(pos);
+    }
+
+    @Inject(method = "testBlockState", at = @At("HEAD"))
+    // a sapling being traced keeps what it saw around it, so TreeTraceReplay can rebuild it
+    private void recordTreeRead(BlockPos pos, Predicate<BlockState> state, CallbackInfoReturnable<Boolean> cir) {
+        if (TreeTraceRecorder.isRecording()) TreeTraceRecorder.recordRead(pos, ((World) (Object) this).getBlockState(pos));
+    }
+}
@@ -0,0 +1,87 @@
+package dev.arthomnix.spaghettitrees.placement;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.ChunkRegion;
+import net.minecraft.world.StructureWorldAccess;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+
+    Per-chunk data shared by the spaghettitrees placement modifiers while one chunk's features are being placed.
+    A chunk's features are all placed by one thread with one world (ChunkRegion), so each thread only keeps the pass for the chunk it is currently decorating, and throws it away when it moves on to another chunk.
+
+*/
+public class ChunkFeaturePass {
+    private static final ThreadLocal<ChunkFeaturePass> CURRENT = new ThreadLocal<>();
+    // set while runDetached runs, so the placement modifiers' metrics only count the chunk's real feature pass
+    private static final ThreadLocal<Boolean> DETACHED = ThreadLocal.withInitial(() -> false);
+
+    private final WeakReference<StructureWorldAccess> world;
+    private final int chunkX;
+    private final int chunkZ;
+
+    private PlantableSurfaceGrid plantableSurfaceGrid;
+    private TreeSpacingIndex treeSpacingIndex;
+    private final Map<BlockState, SaplingSurvivalCache> saplingSurvivalCaches = new HashMap<>(4);
+
+    private ChunkFeaturePass(StructureWorldAccess world, int chunkX, int chunkZ) {
+        this.world = new WeakReference<>(world);
+        this.chunkX = chunkX;
+        this.chunkZ = chunkZ;
+    }
+
+    public static ChunkFeaturePass get(StructureWorldAccess world, BlockPos pos) {
+        int chunkX = pos.getX() >> 4;
+        int chunkZ = pos.getZ() >> 4;
+        // outside of worldgen (e.g. /placefeature) the world can change between calls, so nothing is kept
+        if (!(world instanceof ChunkRegion)) return new ChunkFeaturePass(world, chunkX, chunkZ);
+        ChunkFeaturePass pass = CURRENT.get();
+        if (pass == null || pass.world.get() != world || pass.chunkX != chunkX || pass.chunkZ != chunkZ) {
+            pass = new ChunkFeaturePass(world, chunkX, chunkZ);
+            CURRENT.set(pass);
+        }
+        return pass;
+    }
+
+    // Runs code that places nothing with passes of its own, so what it finds out about the chunk is thrown away afterwards and this thread's current pass is left as it was
+    public static void runDetached(Runnable code) {
+        ChunkFeaturePass current = CURRENT.get();
+        boolean wasDetached = DETACHED.get();
+        CURRENT.remove();
+        DETACHED.set(true);
+        try {
+            code.run();
+        } finally {
+            DETACHED.set(wasDetached);
+            if (current == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(current);
+            }
+        }
+    }
+
+    // Increments one of the placement modifiers' metrics, unless this thread is running detached
+    public static void count(LongAdder counter) {
+        if (!DETACHED.get()) counter.increment();
+    }
+
+    public PlantableSurfaceGrid getPlantableSurfaceGrid() {
+        if (plantableSurfaceGrid == null) plantableSurfaceGrid = new PlantableSurfaceGrid();
+        return plantableSurfaceGrid;
+    }
+
+    public TreeSpacingIndex getTreeSpacingIndex() {
+        if (treeSpacingIndex == null) treeSpacingIndex = new TreeSpacingIndex();
+        return treeSpacingIndex;
+    }
+
+    public SaplingSurvivalCache getSaplingSurvivalCache(BlockState sapling) {
+        return saplingSurvivalCaches.computeIfAbsent(sapling, state -> new SaplingSurvivalCache());
+    }
+}
@@ -0,0 +1,47 @@
+package dev.arthomnix.spaghettitrees.placement;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.tag.BlockTags;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.Heightmap;
+import net.minecraft.world.gen.feature.FeaturePlacementContext;
+
+/*
+
+    Which columns of a chunk have a surface a sapling could be planted on (dirt, grass, podzol, ... or farmland below the ocean floor heightmap).
+    The chunk is split into a coarse 4x4 grid of 4x4 column cells, and each cell is only filled in the first time an attempt lands in it, so rare features don't pay for the whole chunk.
+    One grid is kept per chunk in the ChunkFeaturePass.
+
+*/
+public class PlantableSurfaceGrid {
+    private final short[] cellMasks = new short[16];
+    private int builtCells = 0;
+
+    public boolean isPlantable(FeaturePlacementContext context, int x, int z) {
+        int localX = x & 15;
+        int localZ = z & 15;
+        int cell = (localZ >> 2) << 2 | (localX >> 2);
+        if ((builtCells & (1 << cell)) == 0) {
+            cellMasks[cell] = buildCell(context, x & ~3, z & ~3);
+            builtCells |= 1 << cell;
+            ChunkFeaturePass.count(PlantableSurfacePlacementModifier.CELLS_BUILT);
+        }
+        return (cellMasks[cell] & (1 << ((localZ & 3) << 2 | (localX & 3)))) != 0;
+    }
+
+    private static short buildCell(FeaturePlacementContext context, int startX, int startZ) {
+        BlockPos.Mutable pos = new BlockPos.Mutable();
+        short mask = 0;
+        for (int dz = 0; dz < 4; dz++) {
+            for (int dx = 0; dx < 4; dx++) {
+                int x = startX + dx;
+                int z = startZ + dz;
+                BlockState floor = context.getBlockState(pos.set(x, context.getTopY(Heightmap.Type.OCEAN_FLOOR, x, z) - 1, z));
+                // same check as PlantBlock.canPlantOnTop, which is what saplings use to decide whether they survive
+                if (floor.isIn(BlockTags.DIRT) || floor.isOf(Blocks.FARMLAND)) mask |= 1 << (dz << 2 | dx);
+            }
+        }
+        return mask;
+    }
+}
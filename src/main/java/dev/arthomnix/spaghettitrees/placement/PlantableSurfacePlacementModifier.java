@@ -0,0 +1,48 @@
+package dev.arthomnix.spaghettitrees.placement;
+
+import com.mojang.serialization.Codec;
+import dev.arthomnix.spaghettitrees.tree.BetterTreesPlacedFeatures;
+import dev.arthomnix.spaghettitrees.util.SpaghettiTreesMetrics;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.gen.feature.FeaturePlacementContext;
+import net.minecraft.world.gen.placementmodifier.AbstractConditionalPlacementModifier;
+import net.minecraft.world.gen.placementmodifier.PlacementModifierType;
+
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+
+    Drops tree attempts on columns where no sapling could survive, before the selector, survival predicates and trunk placer run.
+    Must come straight after PlacedFeatures.OCEAN_FLOOR_HEIGHTMAP, and is only worth using on features that make many attempts per chunk.
+    It only ever rejects attempts that the wouldSurvive filters of the features being placed would reject too.
+
+*/
+public class PlantableSurfacePlacementModifier extends AbstractConditionalPlacementModifier {
+    private static final PlantableSurfacePlacementModifier INSTANCE = new PlantableSurfacePlacementModifier();
+    public static final Codec<PlantableSurfacePlacementModifier> MODIFIER_CODEC = Codec.unit(() -> INSTANCE);
+
+    static final LongAdder ATTEMPTS = SpaghettiTreesMetrics.counter("plantable_surface.attempts");
+    static final LongAdder SKIPPED = SpaghettiTreesMetrics.counter("plantable_surface.skipped");
+    static final LongAdder CELLS_BUILT = SpaghettiTreesMetrics.counter("plantable_surface.cells_built");
+
+    private PlantableSurfacePlacementModifier() {
+    }
+
+    public static PlantableSurfacePlacementModifier of() {
+        return INSTANCE;
+    }
+
+    @Override
+    protected boolean shouldPlace(FeaturePlacementContext context, Random random, BlockPos pos) {
+        ChunkFeaturePass.count(ATTEMPTS);
+        if (ChunkFeaturePass.get(context.getWorld(), pos).getPlantableSurfaceGrid().isPlantable(context, pos.getX(), pos.getZ())) return true;
+        ChunkFeaturePass.count(SKIPPED);
+        return false;
+    }
+
+    @Override
+    public PlacementModifierType<?> getType() {
+        return BetterTreesPlacedFeatures.PLANTABLE_SURFACE;
+    }
+}
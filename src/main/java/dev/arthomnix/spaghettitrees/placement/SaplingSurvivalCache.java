@@ -0,0 +1,34 @@
+package dev.arthomnix.spaghettitrees.placement;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.WorldView;
+
+import java.util.Arrays;
+
+/*
+
+    Whether one kind of sapling would survive in each column of a chunk, remembered for the chunk's feature pass.
+    Each column remembers the height it was checked at; an attempt at a different height (e.g. because a tree has been placed in the column since) is checked again.
+
+*/
+public class SaplingSurvivalCache {
+    private static final int UNKNOWN = Integer.MIN_VALUE;
+
+    private final int[] checkedY = new int[256];
+    private final boolean[] survives = new boolean[256];
+
+    public SaplingSurvivalCache() {
+        Arrays.fill(checkedY, UNKNOWN);
+    }
+
+    public boolean wouldSurvive(BlockState sapling, WorldView world, BlockPos pos) {
+        int column = (pos.getZ() & 15) << 4 | (pos.getX() & 15);
+        if (checkedY[column] != pos.getY()) {
+            checkedY[column] = pos.getY();
+            survives[column] = sapling.canPlaceAt(world, pos);
+            ChunkFeaturePass.count(SaplingSurvivalPlacementModifier.EVALUATIONS);
+        }
+        return survives[column];
+    }
+}
@@ -0,0 +1,50 @@
+package dev.arthomnix.spaghettitrees.placement;
+
+import com.mojang.serialization.Codec;
+import com.mojang.serialization.codecs.RecordCodecBuilder;
+import dev.arthomnix.spaghettitrees.tree.BetterTreesPlacedFeatures;
+import dev.arthomnix.spaghettitrees.util.SpaghettiTreesMetrics;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.gen.feature.FeaturePlacementContext;
+import net.minecraft.world.gen.placementmodifier.AbstractConditionalPlacementModifier;
+import net.minecraft.world.gen.placementmodifier.PlacementModifierType;
+
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+
+    Equivalent to BlockFilterPlacementModifier.of(BlockPredicate.wouldSurvive(sapling, BlockPos.ORIGIN)), but the result is cached per column for the chunk's feature pass.
+    Selectors nest placed features that each check the same sapling at the same position, so most checks after the first are answered from the cache.
+
+*/
+public class SaplingSurvivalPlacementModifier extends AbstractConditionalPlacementModifier {
+    public static final Codec<SaplingSurvivalPlacementModifier> MODIFIER_CODEC = RecordCodecBuilder.create(instance ->
+            instance.group(BlockState.CODEC.fieldOf("sapling").forGetter(modifier -> modifier.sapling)).apply(instance, SaplingSurvivalPlacementModifier::new));
+
+    static final LongAdder CHECKS = SpaghettiTreesMetrics.counter("sapling_survival.checks");
+    static final LongAdder EVALUATIONS = SpaghettiTreesMetrics.counter("sapling_survival.evaluations");
+
+    private final BlockState sapling;
+
+    private SaplingSurvivalPlacementModifier(BlockState sapling) {
+        this.sapling = sapling;
+    }
+
+    public static SaplingSurvivalPlacementModifier of(Block sapling) {
+        return new SaplingSurvivalPlacementModifier(sapling.getDefaultState());
+    }
+
+    @Override
+    protected boolean shouldPlace(FeaturePlacementContext context, Random random, BlockPos pos) {
+        ChunkFeaturePass.count(CHECKS);
+        return ChunkFeaturePass.get(context.getWorld(), pos).getSaplingSurvivalCache(sapling).wouldSurvive(sapling, context.getWorld(), pos);
+    }
+
+    @Override
+    public PlacementModifierType<?> getType() {
+        return BetterTreesPlacedFeatures.SAPLING_SURVIVAL;
+    }
+}
@@ -0,0 +1,341 @@
+package dev.arthomnix.spaghettitrees.placement;
+
+import dev.arthomnix.spaghettitrees.config.SpaghettiTreesConfig;
+import dev.arthomnix.spaghettitrees.mixin.TreeFeatureInvoker;
+import dev.arthomnix.spaghettitrees.sim.SimulatedTree;
+import dev.arthomnix.spaghettitrees.sim.StubWorld;
+import dev.arthomnix.spaghettitrees.sim.TreeSimulator;
+import dev.arthomnix.spaghettitrees.tree.BetterTrunkPlacer;
+import dev.arthomnix.spaghettitrees.util.RegistryUtil;
+import dev.arthomnix.spaghettitrees.util.SpaghettiTreesMetrics;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.ChunkRegion;
+import net.minecraft.world.StructureWorldAccess;
+import net.minecraft.world.gen.chunk.ChunkGenerator;
+import net.minecraft.world.gen.feature.*;
+import net.minecraft.world.gen.placementmodifier.PlacementModifier;
+import net.minecraft.world.gen.random.ChunkRandom;
+import net.minecraft.world.gen.random.RandomSeed;
+import net.minecraft.world.gen.random.Xoroshiro128PlusPlusRandom;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+/*
+
+    With shape_prefetch enabled, the trunks and leaves of the spaghettitrees trees a chunk is going to place are generated against stub worlds on background threads while the chunk's earlier feature steps (lakes, structures, ores and so on) are placed, so each tree only has to be checked against the world and written when its turn comes.
+    Every feature placed during chunk generation gets a random seeded from just the chunk and the feature's index and step, so the trees a tree feature will attempt can be worked out as soon as the chunk's feature pass starts, by running its placement modifiers and random selectors with that random.
+    That only holds if each tree uses the feature's random the same way however the world turns out, so with shape_prefetch every spaghettitrees tree placed during chunk generation is generated from a seed of its own taken from the feature's random (as with lazy_decoration), and its decorators get the tree's random rather than the feature's.
+    Anything placed between the start of the pass and a tree can still change where the tree goes or how it grows, so a prefetched shape is only used if the tree has the origin, seed and feature it was predicted with, its trunk fits at full height, and every block its placers checked in the stub world is the same in the real one. Otherwise it is generated as usual.
+    A feature's index is only known once a chunk generator has placed it, so the first chunks each generator decorates after a restart aren't prefetched.
+
+*/
+public class ShapePrefetcher {
+    private static final Logger LOGGER = LogManager.getLogger("SpaghettiTrees");
+    private static final int MAX_TREES_PER_CHUNK = 128;
+    private static final int MAX_QUEUED = 1024;
+
+    private static final LongAdder PREDICTED = SpaghettiTreesMetrics.counter("shape_prefetch.predicted");
+    private static final LongAdder PREFETCHED = SpaghettiTreesMetrics.counter("shape_prefetch.prefetched");
+    private static final LongAdder HITS = SpaghettiTreesMetrics.counter("shape_prefetch.hits");
+    // trees that weren't predicted, usually because something placed earlier in the pass changed which attempts got through the placement modifiers
+    private static final LongAdder MISSES = SpaghettiTreesMetrics.counter("shape_prefetch.misses");
+    private static final LongAdder NOT_READY = SpaghettiTreesMetrics.counter("shape_prefetch.not_ready");
+    private static final LongAdder REJECTED = SpaghettiTreesMetrics.counter("shape_prefetch.rejected");
+    // predicted trees that weren't placed by the end of the pass
+    private static final LongAdder EVICTED = SpaghettiTreesMetrics.counter("shape_prefetch.evicted");
+    // worldgen thread time spent on each tree, split by whether its prefetched shape was used
+    private static final LongAdder HIT_NANOS = SpaghettiTreesMetrics.counter("shape_prefetch.hit_tree_nanos");
+    private static final LongAdder MISS_NANOS = SpaghettiTreesMetrics.counter("shape_prefetch.miss_tree_nanos");
+    // worldgen thread time spent predicting each chunk's trees at the start of its features stage, which the time saved on hits has to pay for
+    private static final LongAdder PREDICT_NANOS = SpaghettiTreesMetrics.counter("shape_prefetch.predict_nanos");
+
+    private static final int THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() / 4);
+    private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(
+            THREADS, THREADS, 30, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(MAX_QUEUED),
+            runnable -> {
+                Thread thread = new Thread(runnable, "SpaghettiTrees shape prefetch");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            },
+            // a tree whose shape was never queued is just generated as usual
+            new ThreadPoolExecutor.DiscardPolicy()
+    );
+
+    static {
+        EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    // the index and step of every spaghettitrees placed feature each chunk generator has placed, packed as step << 32 | index
+    private static final Map<ChunkGenerator, Map<PlacedFeature, Long>> FEATURE_INDICES = Collections.synchronizedMap(new WeakHashMap<>());
+    // index and step the chunk generator last seeded the feature random with on this thread, packed the same way
+    private static final ThreadLocal<long[]> NEXT_FEATURE_INDEX = ThreadLocal.withInitial(() -> new long[1]);
+
+    // the trees predicted for the chunk whose features are being placed on this thread, and the tree being generated
+    private static final ThreadLocal<ChunkPrefetch> CURRENT_CHUNK = new ThreadLocal<>();
+    private static final ThreadLocal<TreeInProgress> CURRENT_TREE = new ThreadLocal<>();
+
+    private static class PrefetchedTree {
+        final BlockPos origin;
+        final long seed;
+        final TreeFeatureConfig config;
+        // set on a prefetch thread, reads before shape
+        volatile Map<BlockPos, BlockState> reads;
+        volatile SimulatedTree shape;
+        // taken or evicted, so there's no point generating its shape any more
+        volatile boolean done = false;
+
+        PrefetchedTree(BlockPos origin, long seed, TreeFeatureConfig config) {
+            this.origin = origin;
+            this.seed = seed;
+            this.config = config;
+        }
+    }
+
+    private static class ChunkPrefetch {
+        final StructureWorldAccess world;
+        final List<PrefetchedTree> trees = new ArrayList<>();
+
+        ChunkPrefetch(StructureWorldAccess world) {
+            this.world = world;
+        }
+    }
+
+    private static class TreeInProgress {
+        final Random random;
+        final boolean prefetched;
+        final Set<BlockPos> logs = new HashSet<>();
+        final Set<BlockPos> leaves = new HashSet<>();
+
+        TreeInProgress(Random random, boolean prefetched) {
+            this.random = random;
+            this.prefetched = prefetched;
+        }
+    }
+
+    public static boolean isEnabled() {
+        return SpaghettiTreesConfig.SHAPE_PREFETCH;
+    }
+
+    // Whether TreeFeatureMixin should generate a tree from its own seed so that it can be predicted
+    public static boolean shouldUseOwnSeed(StructureWorldAccess world, TreeFeatureConfig config) {
+        return isEnabled() && world instanceof ChunkRegion && RegistryUtil.getConfiguredFeatureIdentifier(config) != null;
+    }
+
+    // A hollow canopy holds leaves back from the world until the tree is finished, so its placers see different blocks than they would in a stub world
+    public static boolean canPrefetch(TreeFeatureConfig config) {
+        return !(SpaghettiTreesConfig.HOLLOW_CANOPY && config.trunkPlacer instanceof BetterTrunkPlacer);
+    }
+
+    // Called from ChunkGeneratorMixin just before the chunk generator seeds the feature random for a structure or feature
+    public static void setNextFeatureIndex(int index, int step) {
+        if (isEnabled()) NEXT_FEATURE_INDEX.get()[0] = (long) step << 32 | (index & 0xFFFFFFFFL);
+    }
+
+    // Called from ChunkGeneratorMixin as the chunk generator places each feature, to learn the index and step of the spaghettitrees ones
+    public static void onPlaceFeature(ChunkGenerator generator, PlacedFeature feature) {
+        if (!isEnabled() || RegistryUtil.getConfiguredFeatureIdentifier(feature.feature().value().config()) == null) return;
+        FEATURE_INDICES.computeIfAbsent(generator, key -> new ConcurrentHashMap<>()).put(feature, NEXT_FEATURE_INDEX.get()[0]);
+    }
+
+    // Called when a chunk's feature pass starts, once its heightmaps are up to date. Works out which trees its spaghettitrees features will attempt and queues their shapes.
+    public static void startChunk(StructureWorldAccess world, ChunkGenerator generator, ChunkPos chunkPos) {
+        CURRENT_CHUNK.remove();
+        if (!isEnabled() || !(world instanceof ChunkRegion)) return;
+        Map<PlacedFeature, Long> indices = FEATURE_INDICES.get(generator);
+        if (indices == null || indices.isEmpty()) return;
+
+        long start = System.nanoTime();
+        // seeded the same way as in ChunkGenerator.generateFeatures
+        BlockPos origin = ChunkSectionPos.from(chunkPos, world.getBottomSectionCoord()).getMinPos();
+        ChunkRandom random = new ChunkRandom(new Xoroshiro128PlusPlusRandom(RandomSeed.getSeed()));
+        long populationSeed = random.setPopulationSeed(world.getSeed(), origin.getX(), origin.getZ());
+        ChunkPrefetch prefetch = new ChunkPrefetch(world);
+        try {
+            // the placement modifiers cache what they find about the chunk in its ChunkFeaturePass, which mustn't keep what they see before the earlier steps are placed
+            ChunkFeaturePass.runDetached(() -> {
+                for (Map.Entry<PlacedFeature, Long> entry : indices.entrySet()) {
+                    long index = entry.getValue();
+                    random.setDecoratorSeed(populationSeed, (int) index, (int) (index >>> 32));
+                    predict(new FeaturePlacementContext(world, generator, Optional.of(entry.getKey())), entry.getKey(), random, origin, prefetch.trees);
+                }
+            });
+        } catch (RuntimeException e) {
+            LOGGER.debug("Couldn't predict the trees in chunk {}", chunkPos, e);
+            PREDICT_NANOS.add(System.nanoTime() - start);
+            return;
+        }
+        PREDICTED.add(prefetch.trees.size());
+        for (PrefetchedTree tree : prefetch.trees) EXECUTOR.execute(() -> simulate(tree));
+        CURRENT_CHUNK.set(prefetch);
+        PREDICT_NANOS.add(System.nanoTime() - start);
+    }
+
+    // Called when a chunk's feature pass ends
+    public static void endChunk() {
+        ChunkPrefetch prefetch = CURRENT_CHUNK.get();
+        if (prefetch == null) return;
+        CURRENT_CHUNK.remove();
+        for (PrefetchedTree tree : prefetch.trees) {
+            if (!tree.done) {
+                tree.done = true;
+                EVICTED.increment();
+            }
+        }
+    }
+
+    // Runs a placed feature's modifiers as PlacedFeature.generate does (streamed, so the random is used in the same order), then predicts its configured feature at each position. Returns false once nothing more can be predicted.
+    private static boolean predict(FeaturePlacementContext context, PlacedFeature feature, Random random, BlockPos origin, List<PrefetchedTree> trees) {
+        Stream<BlockPos> positions = Stream.of(origin);
+        for (PlacementModifier modifier : feature.placementModifiers()) {
+            positions = positions.flatMap(pos -> modifier.getPositions(context, random, pos));
+        }
+        ConfiguredFeature<?, ?> configured = feature.feature().value();
+        boolean[] predictable = {true};
+        positions.forEach(pos -> {
+            if (predictable[0]) predictable[0] = predict(context.getWorld(), context.getChunkGenerator(), configured, random, pos, trees);
+        });
+        return predictable[0];
+    }
+
+    // Only trees generated from their own seed and the random selectors that choose them use the random the same way whatever the world is like
+    private static boolean predict(StructureWorldAccess world, ChunkGenerator generator, ConfiguredFeature<?, ?> feature, Random random, BlockPos pos, List<PrefetchedTree> trees) {
+        if (trees.size() >= MAX_TREES_PER_CHUNK) return false;
+        if (feature.feature() == Feature.TREE && feature.config() instanceof TreeFeatureConfig config && RegistryUtil.getConfiguredFeatureIdentifier(config) != null) {
+            // the only use TreeFeatureMixin makes of the feature's random for a tree generated from its own seed
+            long seed = random.nextLong();
+            if (canPrefetch(config)) trees.add(new PrefetchedTree(pos.toImmutable(), seed, config));
+            return true;
+        }
+        if (feature.feature() == Feature.RANDOM_SELECTOR && feature.config() instanceof RandomFeatureConfig config) {
+            // same as RandomFeature
+            FeaturePlacementContext context = new FeaturePlacementContext(world, generator, Optional.empty());
+            for (RandomFeatureEntry entry : config.features) {
+                if (random.nextFloat() < entry.chance) return predict(context, entry.feature.value(), random, pos, trees);
+            }
+            return predict(context, config.defaultFeature.value(), random, pos, trees);
+        }
+        return false;
+    }
+
+    private static void simulate(PrefetchedTree tree) {
+        if (tree.done) return;
+        StubWorld world = new StubWorld(tree.origin.getY());
+        world.recordReads();
+        SimulatedTree shape = TreeSimulator.simulateShape(tree.config, tree.seed, tree.origin, world);
+        // nothing can check a heightmap lookup against the real world later
+        if (world.hasReadHeightmap()) return;
+        tree.reads = world.getReads();
+        tree.shape = shape;
+        PREFETCHED.increment();
+    }
+
+    // Returns the prefetched shape of the tree about to be generated if it can be placed as it is, or null if the tree has to be generated as usual
+    public static SimulatedTree take(StructureWorldAccess world, BlockPos origin, long seed, TreeFeatureConfig config) {
+        ChunkPrefetch prefetch = CURRENT_CHUNK.get();
+        PrefetchedTree tree = null;
+        if (prefetch != null && prefetch.world == world) {
+            for (PrefetchedTree candidate : prefetch.trees) {
+                if (!candidate.done && candidate.seed == seed && candidate.config == config && candidate.origin.equals(origin)) {
+                    tree = candidate;
+                    break;
+                }
+            }
+        }
+        if (tree == null) {
+            MISSES.increment();
+            return null;
+        }
+        tree.done = true;
+        SimulatedTree shape = tree.shape;
+        if (shape == null) {
+            NOT_READY.increment();
+            return null;
+        }
+        if (!fits(world, origin, shape, tree.reads, config)) {
+            REJECTED.increment();
+            return null;
+        }
+        HITS.increment();
+        return shape;
+    }
+
+    private static boolean fits(StructureWorldAccess world, BlockPos origin, SimulatedTree shape, Map<BlockPos, BlockState> reads, TreeFeatureConfig config) {
+        // the checks TreeFeature makes before placing the trunk, which has to fit at its full height for the shape to be right
+        if (origin.getY() < world.getBottomY() + 1 || origin.getY() + shape.height + 1 > world.getTopY()) return false;
+        if (((TreeFeatureInvoker) Feature.TREE).callGetTopPosition(world, shape.height, origin, config) < shape.height) return false;
+        // if every block the placers checked is the same, they would make the same random calls and writes in the real world
+        for (Map.Entry<BlockPos, BlockState> read : reads.entrySet()) {
+            if (world.getBlockState(read.getKey()) != read.getValue()) return false;
+        }
+        return true;
+    }
+
+    // Writes a prefetched shape through the tree's replacers in the order the placers wrote it. All of the trunk placer's writes come before the foliage placer's.
+    public static void place(SimulatedTree shape, BiConsumer<BlockPos, BlockState> trunkReplacer, BiConsumer<BlockPos, BlockState> foliageReplacer) {
+        for (int i = 0; i < shape.positions.size(); i++) {
+            (i < shape.logCount ? trunkReplacer : foliageReplacer).accept(shape.positions.get(i), shape.states.get(i));
+        }
+    }
+
+    // Sets the random the decorators of the tree about to be generated on this thread should get (the prefetched shape's, if it was used), or null if the tree isn't generated from its own seed for shape_prefetch
+    public static void beginTree(Random random, boolean prefetched) {
+        if (random == null) {
+            CURRENT_TREE.remove();
+        } else {
+            CURRENT_TREE.set(new TreeInProgress(random, prefetched));
+        }
+    }
+
+    public static void finishTree() {
+        CURRENT_TREE.remove();
+    }
+
+    public static boolean isGeneratingTree() {
+        return CURRENT_TREE.get() != null;
+    }
+
+    // Collect the positions TreeFeature would hand the decorators
+    public static BiConsumer<BlockPos, BlockState> collectTrunk(BiConsumer<BlockPos, BlockState> replacer) {
+        TreeInProgress tree = CURRENT_TREE.get();
+        return (pos, state) -> {
+            tree.logs.add(pos.toImmutable());
+            replacer.accept(pos, state);
+        };
+    }
+
+    public static BiConsumer<BlockPos, BlockState> collectFoliage(BiConsumer<BlockPos, BlockState> replacer) {
+        TreeInProgress tree = CURRENT_TREE.get();
+        return (pos, state) -> {
+            tree.leaves.add(pos.toImmutable());
+            replacer.accept(pos, state);
+        };
+    }
+
+    public static Random getRandom() {
+        return CURRENT_TREE.get().random;
+    }
+
+    public static List<BlockPos> getLogs() {
+        return TreeSimulator.sortedByY(CURRENT_TREE.get().logs);
+    }
+
+    public static List<BlockPos> getLeaves() {
+        return TreeSimulator.sortedByY(CURRENT_TREE.get().leaves);
+    }
+
+    public static void recordTreeTime(long nanos) {
+        TreeInProgress tree = CURRENT_TREE.get();
+        if (tree != null) (tree.prefetched ? HIT_NANOS : MISS_NANOS).add(nanos);
+    }
+}
@@ -0,0 +1,45 @@
+package dev.arthomnix.spaghettitrees.placement;
+
+import com.mojang.serialization.Codec;
+import com.mojang.serialization.codecs.RecordCodecBuilder;
+import dev.arthomnix.spaghettitrees.tree.BetterTreesPlacedFeatures;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.gen.feature.FeaturePlacementContext;
+import net.minecraft.world.gen.placementmodifier.PlacementModifier;
+import net.minecraft.world.gen.placementmodifier.PlacementModifierType;
+
+import java.util.Random;
+import java.util.stream.Stream;
+
+/*
+
+    Scales the number of attempts a placed feature makes by a multiplier from TreeBudgets: each attempt is repeated floor(multiplier) times, plus once more with a probability of the fractional part.
+    Goes just before SquarePlacementModifier, so repeated attempts are still spread over the chunk.
+
+*/
+public class TreeDensityPlacementModifier extends PlacementModifier {
+    public static final Codec<TreeDensityPlacementModifier> MODIFIER_CODEC = RecordCodecBuilder.create(instance ->
+            instance.group(Codec.floatRange(0, 64).fieldOf("multiplier").forGetter(modifier -> modifier.multiplier)).apply(instance, TreeDensityPlacementModifier::new));
+
+    private final float multiplier;
+
+    private TreeDensityPlacementModifier(float multiplier) {
+        this.multiplier = multiplier;
+    }
+
+    public static TreeDensityPlacementModifier of(float multiplier) {
+        return new TreeDensityPlacementModifier(multiplier);
+    }
+
+    @Override
+    public Stream<BlockPos> getPositions(FeaturePlacementContext context, Random random, BlockPos pos) {
+        int whole = (int) multiplier;
+        int count = whole + (random.nextFloat() < multiplier - whole ? 1 : 0);
+        return count == 1 ? Stream.of(pos) : Stream.generate(() -> pos).limit(count);
+    }
+
+    @Override
+    public PlacementModifierType<?> getType() {
+        return BetterTreesPlacedFeatures.TREE_DENSITY;
+    }
+}
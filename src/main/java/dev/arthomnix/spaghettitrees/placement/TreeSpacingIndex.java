@@ -0,0 +1,75 @@
+package dev.arthomnix.spaghettitrees.placement;
+
+import dev.arthomnix.spaghettitrees.config.SpaghettiTreesConfig;
+import dev.arthomnix.spaghettitrees.tree.BetterTrunkPlacer;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.ChunkRegion;
+import net.minecraft.world.StructureWorldAccess;
+import net.minecraft.world.gen.feature.TreeFeatureConfig;
+
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+/*
+
+    The footprints of the spaghetti trees placed so far in a chunk's feature pass: each tree's trunk column and how far its logs reach from it, capped at tree_spacing.
+    Attempts that land inside a footprint would mostly fail on the trunk or grow through the other tree's branches, so TreeSpacingPlacementModifier drops them before any tree generation runs.
+    One index is kept per chunk in the ChunkFeaturePass.
+
+*/
+public class TreeSpacingIndex {
+    private int[] xs = new int[16];
+    private int[] zs = new int[16];
+    private int[] radiiSquared = new int[16];
+    private int size = 0;
+
+    public static boolean shouldRecord(StructureWorldAccess world, TreeFeatureConfig config) {
+        return SpaghettiTreesConfig.TREE_SPACING > 0 && world instanceof ChunkRegion && config.trunkPlacer instanceof BetterTrunkPlacer;
+    }
+
+    public boolean isClear(int x, int z) {
+        for (int i = 0; i < size; i++) {
+            int dx = x - xs[i];
+            int dz = z - zs[i];
+            if (dx * dx + dz * dz < radiiSquared[i]) return false;
+        }
+        return true;
+    }
+
+    public void add(Footprint footprint) {
+        if (size == xs.length) {
+            xs = Arrays.copyOf(xs, size * 2);
+            zs = Arrays.copyOf(zs, size * 2);
+            radiiSquared = Arrays.copyOf(radiiSquared, size * 2);
+        }
+        int cap = SpaghettiTreesConfig.TREE_SPACING;
+        xs[size] = footprint.x;
+        zs[size] = footprint.z;
+        radiiSquared[size] = Math.min(footprint.reachSquared, cap * cap);
+        size++;
+        ChunkFeaturePass.count(TreeSpacingPlacementModifier.TREES_INDEXED);
+    }
+
+    // Measures how far a tree's logs reach from its trunk as they are placed
+    public static class Footprint {
+        private final int x;
+        private final int z;
+        // the 3x3 base of the trunk is always there
+        private int reachSquared = 2;
+
+        public Footprint(BlockPos origin) {
+            this.x = origin.getX();
+            this.z = origin.getZ();
+        }
+
+        public BiConsumer<BlockPos, BlockState> wrap(BiConsumer<BlockPos, BlockState> trunkReplacer) {
+            return (pos, state) -> {
+                int dx = pos.getX() - x;
+                int dz = pos.getZ() - z;
+                reachSquared = Math.max(reachSquared, dx * dx + dz * dz);
+                trunkReplacer.accept(pos, state);
+            };
+        }
+    }
+}
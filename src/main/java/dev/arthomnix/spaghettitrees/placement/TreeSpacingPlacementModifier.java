@@ -0,0 +1,49 @@
+package dev.arthomnix.spaghettitrees.placement;
+
+import com.mojang.serialization.Codec;
+import dev.arthomnix.spaghettitrees.config.SpaghettiTreesConfig;
+import dev.arthomnix.spaghettitrees.tree.BetterTreesPlacedFeatures;
+import dev.arthomnix.spaghettitrees.util.SpaghettiTreesMetrics;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.gen.feature.FeaturePlacementContext;
+import net.minecraft.world.gen.placementmodifier.AbstractConditionalPlacementModifier;
+import net.minecraft.world.gen.placementmodifier.PlacementModifierType;
+
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+
+    With tree_spacing set, drops tree attempts that land within the footprint of a spaghetti tree already placed in the chunk (see TreeSpacingIndex).
+    Unlike the other spaghettitrees modifiers this changes what generates, so it does nothing unless tree_spacing is set. Only worth using on features that make many attempts per chunk.
+
+*/
+public class TreeSpacingPlacementModifier extends AbstractConditionalPlacementModifier {
+    private static final TreeSpacingPlacementModifier INSTANCE = new TreeSpacingPlacementModifier();
+    public static final Codec<TreeSpacingPlacementModifier> MODIFIER_CODEC = Codec.unit(() -> INSTANCE);
+
+    static final LongAdder ATTEMPTS = SpaghettiTreesMetrics.counter("tree_spacing.attempts");
+    static final LongAdder SKIPPED = SpaghettiTreesMetrics.counter("tree_spacing.skipped");
+    static final LongAdder TREES_INDEXED = SpaghettiTreesMetrics.counter("tree_spacing.trees_indexed");
+
+    private TreeSpacingPlacementModifier() {
+    }
+
+    public static TreeSpacingPlacementModifier of() {
+        return INSTANCE;
+    }
+
+    @Override
+    protected boolean shouldPlace(FeaturePlacementContext context, Random random, BlockPos pos) {
+        if (SpaghettiTreesConfig.TREE_SPACING <= 0) return true;
+        ChunkFeaturePass.count(ATTEMPTS);
+        if (ChunkFeaturePass.get(context.getWorld(), pos).getTreeSpacingIndex().isClear(pos.getX(), pos.getZ())) return true;
+        ChunkFeaturePass.count(SKIPPED);
+        return false;
+    }
+
+    @Override
+    public PlacementModifierType<?> getType() {
+        return BetterTreesPlacedFeatures.TREE_SPACING;
+    }
+}
@@ -0,0 +1,67 @@
+package dev.arthomnix.spaghettitrees.pregen;
+
+import net.minecraft.util.Identifier;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/*
+
+    Progress of a /spaghettitrees pregen run, saved in the world folder as spaghettitrees_pregen.properties.
+    Chunks finish out of order, so completed is the number of chunks before the first one that might not be done yet. Resuming regenerates nothing that was saved before it.
+
+*/
+public class PregenCheckpoint {
+    public final Identifier dimension;
+    public final int centerX;
+    public final int centerZ;
+    public final int radius;
+    public final long completed;
+
+    public PregenCheckpoint(Identifier dimension, int centerX, int centerZ, int radius, long completed) {
+        this.dimension = dimension;
+        this.centerX = centerX;
+        this.centerZ = centerZ;
+        this.radius = radius;
+        this.completed = completed;
+    }
+
+    public static PregenCheckpoint read(Path path) throws IOException {
+        if (!Files.exists(path)) return null;
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path)) {
+            properties.load(reader);
+        }
+        try {
+            return new PregenCheckpoint(
+                    new Identifier(properties.getProperty("dimension")),
+                    Integer.parseInt(properties.getProperty("center_x")),
+                    Integer.parseInt(properties.getProperty("center_z")),
+                    Integer.parseInt(properties.getProperty("radius")),
+                    Long.parseLong(properties.getProperty("completed"))
+            );
+        } catch (RuntimeException e) {
+            throw new IOException("Invalid pregen checkpoint " + path, e);
+        }
+    }
+
+    // written to a temporary file first so a crash mid-write can't leave a broken checkpoint
+    public void write(Path path) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("dimension", dimension.toString());
+        properties.setProperty("center_x", Integer.toString(centerX));
+        properties.setProperty("center_z", Integer.toString(centerZ));
+        properties.setProperty("radius", Integer.toString(radius));
+        properties.setProperty("completed", Long.toString(completed));
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp)) {
+            properties.store(writer, "SpaghettiTrees pregeneration progress, resume with /spaghettitrees pregen resume");
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,222 @@
+package dev.arthomnix.spaghettitrees.pregen;
+
+import dev.arthomnix.spaghettitrees.mixin.ServerChunkManagerInvoker;
+import dev.arthomnix.spaghettitrees.util.FeatureTiming;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.server.world.ChunkTicketType;
+import net.minecraft.server.world.ServerChunkManager;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.text.LiteralText;
+import net.minecraft.util.WorldSavePath;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.chunk.ChunkStatus;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.concurrent.Semaphore;
+
+/*
+
+    Generates every chunk in a square around a centre chunk, for /spaghettitrees pregen.
+    Chunks are requested from the server thread and generated by the chunk system's own worldgen threads, the same as for players. The worker count is how many chunks are requested at once.
+    A new chunk is only requested once an earlier one has finished, and requests pause while the server has too many chunks loaded, so the chunk system and the save queue can keep up.
+
+*/
+public class Pregenerator {
+    private static final Logger LOGGER = LogManager.getLogger("SpaghettiTrees");
+    private static final ChunkTicketType<ChunkPos> TICKET = ChunkTicketType.create("spaghettitrees_pregen", Comparator.comparingLong(ChunkPos::toLong));
+    private static final String CHECKPOINT_FILE = "spaghettitrees_pregen.properties";
+    private static final long REPORT_INTERVAL_NANOS = 10_000_000_000L;
+    // chunks loaded around the ones being generated, above which no more are requested
+    private static final int MAX_LOADED_CHUNKS = 8192;
+
+    private static volatile Pregenerator current;
+
+    private final ServerCommandSource source;
+    private final MinecraftServer server;
+    private final ServerWorld world;
+    private final int centerX;
+    private final int centerZ;
+    private final int radius;
+    private final int workers;
+    private final long total;
+    // index of the first chunk this run generates
+    private final long start;
+
+    private final Semaphore inFlight;
+    // chunks finished by this run, by index - start
+    private final BitSet finished = new BitSet();
+    private volatile long failed = 0;
+    private volatile boolean stopped = false;
+
+    private Pregenerator(ServerCommandSource source, int centerX, int centerZ, int radius, int workers, long start) {
+        this.source = source;
+        this.server = source.getServer();
+        this.world = source.getWorld();
+        this.centerX = centerX;
+        this.centerZ = centerZ;
+        this.radius = radius;
+        this.workers = workers;
+        this.total = (2L * radius + 1) * (2L * radius + 1);
+        this.start = start;
+        this.inFlight = new Semaphore(workers);
+    }
+
+    private static Path getCheckpointPath(MinecraftServer server) {
+        return server.getSavePath(WorldSavePath.ROOT).resolve(CHECKPOINT_FILE);
+    }
+
+    public static synchronized String start(ServerCommandSource source, int radius, int workers) {
+        if (current != null) return "A pregen is already running, stop it with /spaghettitrees pregen stop";
+        ChunkPos center = new ChunkPos(new BlockPos(source.getPosition()));
+        return start(new Pregenerator(source, center.x, center.z, radius, workers, 0));
+    }
+
+    public static synchronized String resume(ServerCommandSource source, int workers) throws IOException {
+        if (current != null) return "A pregen is already running, stop it with /spaghettitrees pregen stop";
+        PregenCheckpoint checkpoint = PregenCheckpoint.read(getCheckpointPath(source.getServer()));
+        if (checkpoint == null) return "No pregen to resume";
+        if (!checkpoint.dimension.equals(source.getWorld().getRegistryKey().getValue())) {
+            return "The saved pregen is for " + checkpoint.dimension + ", resume it from that dimension";
+        }
+        return start(new Pregenerator(source, checkpoint.centerX, checkpoint.centerZ, checkpoint.radius, workers, checkpoint.completed));
+    }
+
+    public static String stop() {
+        Pregenerator pregenerator = current;
+        if (pregenerator == null) return "No pregen is running";
+        pregenerator.stopped = true;
+        return "Stopping pregen once the chunks already requested are done, resume it with /spaghettitrees pregen resume";
+    }
+
+    private static String start(Pregenerator pregenerator) {
+        current = pregenerator;
+        Thread thread = new Thread(pregenerator::run, "SpaghettiTrees pregen");
+        thread.setDaemon(true);
+        thread.start();
+        return "Pregenerating " + (pregenerator.total - pregenerator.start) + " chunks around chunk " + pregenerator.centerX + ", " + pregenerator.centerZ + " with " + pregenerator.workers + " workers";
+    }
+
+    private ChunkPos chunkAt(long index) {
+        int side = 2 * radius + 1;
+        return new ChunkPos(centerX - radius + (int) (index % side), centerZ - radius + (int) (index / side));
+    }
+
+    private void run() {
+        long startNanos = System.nanoTime();
+        long startFeatureNanos = FeatureTiming.ALL_FEATURES_NANOS.sum();
+        long startFeatureChunks = FeatureTiming.CHUNKS.sum();
+        long startTreeNanos = FeatureTiming.SPAGHETTITREES_NANOS.sum();
+        long startLightNanos = FeatureTiming.LIGHT_NANOS.sum();
+        long lastReport = startNanos;
+        try {
+            for (long index = start; index < total && !stopped; index++) {
+                inFlight.acquire();
+                while (world.getChunkManager().getLoadedChunkCount() > MAX_LOADED_CHUNKS && !stopped) {
+                    Thread.sleep(50);
+                }
+                ChunkPos pos = chunkAt(index);
+                int offset = (int) (index - start);
+                server.execute(() -> request(pos, offset));
+
+                long now = System.nanoTime();
+                if (now - lastReport > REPORT_INTERVAL_NANOS) {
+                    lastReport = now;
+                    saveCheckpoint();
+                    report(progress(startNanos, startFeatureNanos, startFeatureChunks, startTreeNanos, startLightNanos), false);
+                }
+            }
+            // wait for the chunks that are still generating
+            inFlight.acquire(workers);
+        } catch (InterruptedException e) {
+            stopped = true;
+        }
+
+        String summary = progress(startNanos, startFeatureNanos, startFeatureChunks, startTreeNanos, startLightNanos);
+        if (getCompleted() >= total) {
+            try {
+                Files.deleteIfExists(getCheckpointPath(server));
+            } catch (IOException e) {
+                LOGGER.error("Couldn't delete pregen checkpoint", e);
+            }
+            report("Finished pregen: " + summary, true);
+        } else {
+            saveCheckpoint();
+            report("Stopped pregen: " + summary, true);
+        }
+        current = null;
+    }
+
+    // Runs on the server thread
+    private void request(ChunkPos pos, int offset) {
+        ServerChunkManager chunkManager = world.getChunkManager();
+        // keeps the chunk loading until it's done, the ticket getChunkFutureSyncOnMainThread adds only lasts one tick
+        chunkManager.addTicket(TICKET, pos, 0, pos);
+        ((ServerChunkManagerInvoker) chunkManager).callGetChunkFutureSyncOnMainThread(pos.x, pos.z, ChunkStatus.FULL, true).whenComplete((result, throwable) -> server.execute(() -> {
+            chunkManager.removeTicket(TICKET, pos, 0, pos);
+            if (throwable != null || result.right().isPresent()) {
+                // counted as finished anyway, so a chunk that can't be generated doesn't hold back the checkpoint forever
+                failed++;
+                LOGGER.warn("Couldn't pregenerate chunk {}", pos, throwable);
+            }
+            synchronized (finished) {
+                finished.set(offset);
+            }
+            inFlight.release();
+        }));
+    }
+
+    // Index of the first chunk that might not be finished
+    private long getCompleted() {
+        synchronized (finished) {
+            return start + finished.nextClearBit(0);
+        }
+    }
+
+    private int getFinishedCount() {
+        synchronized (finished) {
+            return finished.cardinality();
+        }
+    }
+
+    private void saveCheckpoint() {
+        try {
+            new PregenCheckpoint(world.getRegistryKey().getValue(), centerX, centerZ, radius, getCompleted()).write(getCheckpointPath(server));
+        } catch (IOException e) {
+            LOGGER.error("Couldn't save pregen checkpoint", e);
+        }
+    }
+
+    private String progress(long startNanos, long startFeatureNanos, long startFeatureChunks, long startTreeNanos, long startLightNanos) {
+        int done = getFinishedCount();
+        long remaining = total - start - done;
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        double rate = done / Math.max(seconds, 1e-9);
+        // thread time summed over all worldgen threads, so it can be more than the elapsed time
+        double featureSeconds = (FeatureTiming.ALL_FEATURES_NANOS.sum() - startFeatureNanos) / 1e9;
+        double treeSeconds = (FeatureTiming.SPAGHETTITREES_NANOS.sum() - startTreeNanos) / 1e9;
+        // chunks outside the area are decorated too, so the features stage is timed per decorated chunk
+        long featureChunks = FeatureTiming.CHUNKS.sum() - startFeatureChunks;
+        double featureMillisPerChunk = featureChunks > 0 ? featureSeconds * 1e3 / featureChunks : 0;
+        double lightMillisPerChunk = done > 0 ? (FeatureTiming.LIGHT_NANOS.sum() - startLightNanos) / 1e6 / done : 0;
+        return String.format("%d/%d chunks, %.1f chunks/s, ETA %s, %d failed. Features took %.1f s of thread time (%.2f ms/chunk), %.1f s (%.0f%%) in spaghettitrees trees and %.1f s in everything else. Light engine %.2f ms/chunk",
+                start + done, total, rate, rate > 0 ? formatDuration((long) (remaining / rate)) : "unknown", failed,
+                featureSeconds, featureMillisPerChunk, treeSeconds, featureSeconds > 0 ? 100 * treeSeconds / featureSeconds : 0, featureSeconds - treeSeconds, lightMillisPerChunk);
+    }
+
+    private static String formatDuration(long seconds) {
+        return String.format("%d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60);
+    }
+
+    private void report(String message, boolean broadcast) {
+        LOGGER.info("Pregen: {}", message);
+        server.execute(() -> source.sendFeedback(new LiteralText(message), broadcast));
+    }
+}
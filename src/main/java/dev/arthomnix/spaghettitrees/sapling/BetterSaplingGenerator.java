@@ -0,0 +1,60 @@
+package dev.arthomnix.spaghettitrees.sapling;
+
+import dev.arthomnix.spaghettitrees.jfr.SaplingGrowthCounter;
+import dev.arthomnix.spaghettitrees.jfr.SaplingGrowthEvent;
+import dev.arthomnix.spaghettitrees.mixin.SaplingGeneratorInvoker;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.block.sapling.SaplingGenerator;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockBox;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.registry.RegistryEntry;
+import net.minecraft.world.gen.chunk.ChunkGenerator;
+import net.minecraft.world.gen.feature.ConfiguredFeature;
+import net.minecraft.world.gen.feature.TreeFeatureConfig;
+
+import java.util.Random;
+
+public abstract class BetterSaplingGenerator extends SaplingGenerator {
+    // Same as the vanilla implementation, but keeps hold of the chosen feature so growth can be recorded, and skips saplings the SaplingFailureCache knows can't grow
+    @Override
+    public boolean generate(ServerWorld world, ChunkGenerator chunkGenerator, BlockPos pos, BlockState state, Random random) {
+        SaplingFailureCache failureCache = ((SaplingFailureCacheHolder) world).getSaplingFailureCache();
+        if (failureCache.isKnownFailure(pos, this)) return false;
+        SaplingGrowthEvent event = new SaplingGrowthEvent();
+        event.begin();
+        SaplingGrowthCounter counter = event.isEnabled() ? SaplingGrowthCounter.begin() : null;
+        RegistryEntry<? extends ConfiguredFeature<?, ?>> registryEntry = this.getTreeFeature(random, ((SaplingGeneratorInvoker) this).callAreFlowersNearby(world, pos));
+        boolean success = false;
+        try {
+            if (registryEntry != null) {
+                ConfiguredFeature<?, ?> configuredFeature = registryEntry.value();
+                world.setBlockState(pos, Blocks.AIR.getDefaultState(), 4);
+                success = configuredFeature.generate(world, chunkGenerator, random, pos);
+                if (!success) {
+                    BlockBox footprint = configuredFeature.config() instanceof TreeFeatureConfig config ? SaplingFailureCache.getBlockedFootprint(world, pos, config) : null;
+                    world.setBlockState(pos, state, 4);
+                    if (footprint != null) failureCache.recordFailure(pos, this, footprint);
+                }
+            }
+        } finally {
+            if (counter != null) SaplingGrowthCounter.end();
+        }
+        if (event.shouldCommit()) {
+            event.featureId = registryEntry == null ? "none" : registryEntry.getKey().map(key -> key.getValue().toString()).orElse("unknown");
+            event.x = pos.getX();
+            event.y = pos.getY();
+            event.z = pos.getZ();
+            event.success = success;
+            event.logCount = counter.getLogCount();
+            event.leafCount = counter.getLeafCount();
+            event.decorationCount = counter.getDecorationCount();
+            event.blockCount = event.logCount + event.leafCount + event.decorationCount;
+            event.branchCount = counter.getBranchCount();
+            event.maxDepth = counter.getMaxDepth();
+            event.commit();
+        }
+        return success;
+    }
+}
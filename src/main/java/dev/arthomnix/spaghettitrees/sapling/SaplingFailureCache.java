@@ -0,0 +1,111 @@
+package dev.arthomnix.spaghettitrees.sapling;
+
+import dev.arthomnix.spaghettitrees.mixin.TreeFeatureInvoker;
+import dev.arthomnix.spaghettitrees.tree.BetterTrunkPlacer;
+import dev.arthomnix.spaghettitrees.util.SpaghettiTreesMetrics;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.block.sapling.SaplingGenerator;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockBox;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.gen.feature.Feature;
+import net.minecraft.world.gen.feature.TreeFeatureConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+
+    Remembers spaghettitrees saplings that can't grow where they are, so bonemeal and random ticks don't keep running tree generation for them.
+    A failure is only remembered if even the shortest trunk the tree could roll wouldn't fit, as a taller trunk failing says nothing about the next attempt's height. The space TreeFeature checks for that trunk is the sapling's footprint, and any block change inside it forgets the failure.
+    Kept per world in memory only (nothing is saved), and only used from the server thread.
+
+*/
+public class SaplingFailureCache {
+    private static final int MAX_ENTRIES = 4096;
+
+    private static final LongAdder HITS = SpaghettiTreesMetrics.counter("sapling_failures.hits");
+    private static final LongAdder MISSES = SpaghettiTreesMetrics.counter("sapling_failures.misses");
+    private static final LongAdder CACHED = SpaghettiTreesMetrics.counter("sapling_failures.cached");
+    private static final LongAdder INVALIDATED = SpaghettiTreesMetrics.counter("sapling_failures.invalidated");
+
+    private record Failure(long pos, SaplingGenerator generator, BlockBox footprint) {
+    }
+
+    // by sapling position, oldest first so the oldest can be dropped when full
+    private final Long2ObjectLinkedOpenHashMap<Failure> failures = new Long2ObjectLinkedOpenHashMap<>();
+    // every chunk a footprint overlaps, so a block change only has to look at the failures near it
+    private final Long2ObjectMap<List<Failure>> byChunk = new Long2ObjectOpenHashMap<>();
+
+    public boolean isKnownFailure(BlockPos pos, SaplingGenerator generator) {
+        Failure failure = failures.get(pos.asLong());
+        if (failure != null && failure.generator == generator) {
+            HITS.increment();
+            return true;
+        }
+        MISSES.increment();
+        return false;
+    }
+
+    // Called after a sapling failed to grow, while its own block is still air as TreeFeature saw it. Returns the footprint if even the shortest trunk wouldn't fit, or null if the sapling might grow next time.
+    public static BlockBox getBlockedFootprint(ServerWorld world, BlockPos pos, TreeFeatureConfig config) {
+        if (!(config.trunkPlacer instanceof BetterTrunkPlacer trunkPlacer)) return null;
+        int minHeight = trunkPlacer.getMinHeight();
+        // same check as TreeFeature.generate, for the shortest trunk the tree can have
+        int freeHeight = ((TreeFeatureInvoker) Feature.TREE).callGetTopPosition(world, minHeight, pos, config);
+        if (freeHeight >= minHeight || (config.minimumSize.getMinClippedHeight().isPresent() && freeHeight >= config.minimumSize.getMinClippedHeight().getAsInt())) return null;
+        int radius = 0;
+        for (int y = 0; y <= minHeight + 1; y++) radius = Math.max(radius, config.minimumSize.getRadius(minHeight, y));
+        return new BlockBox(pos.getX() - radius, pos.getY(), pos.getZ() - radius, pos.getX() + radius, pos.getY() + minHeight + 1, pos.getZ() + radius);
+    }
+
+    // Called once the sapling has been put back, so that doesn't count as a change to the footprint
+    public void recordFailure(BlockPos pos, SaplingGenerator generator, BlockBox footprint) {
+        Failure failure = new Failure(pos.asLong(), generator, footprint);
+        remove(failures.put(failure.pos, failure));
+        for (int chunkX = failure.footprint.getMinX() >> 4; chunkX <= failure.footprint.getMaxX() >> 4; chunkX++) {
+            for (int chunkZ = failure.footprint.getMinZ() >> 4; chunkZ <= failure.footprint.getMaxZ() >> 4; chunkZ++) {
+                byChunk.computeIfAbsent(ChunkPos.toLong(chunkX, chunkZ), chunk -> new ArrayList<>(2)).add(failure);
+            }
+        }
+        CACHED.increment();
+        if (failures.size() > MAX_ENTRIES) remove(failures.removeFirst());
+    }
+
+    // Called for every block change in the world, so returns straight away unless a failure's footprint is in the chunk
+    public void onBlockChanged(BlockPos pos) {
+        if (failures.isEmpty()) return;
+        List<Failure> chunkFailures = byChunk.get(ChunkPos.toLong(pos.getX() >> 4, pos.getZ() >> 4));
+        if (chunkFailures == null) return;
+        List<Failure> invalidated = null;
+        for (Failure failure : chunkFailures) {
+            if (failure.footprint.contains(pos)) {
+                if (invalidated == null) invalidated = new ArrayList<>(1);
+                invalidated.add(failure);
+            }
+        }
+        if (invalidated == null) return;
+        for (Failure failure : invalidated) {
+            failures.remove(failure.pos);
+            remove(failure);
+            INVALIDATED.increment();
+        }
+    }
+
+    private void remove(Failure failure) {
+        if (failure == null) return;
+        for (int chunkX = failure.footprint.getMinX() >> 4; chunkX <= failure.footprint.getMaxX() >> 4; chunkX++) {
+            for (int chunkZ = failure.footprint.getMinZ() >> 4; chunkZ <= failure.footprint.getMaxZ() >> 4; chunkZ++) {
+                long chunk = ChunkPos.toLong(chunkX, chunkZ);
+                List<Failure> chunkFailures = byChunk.get(chunk);
+                if (chunkFailures == null) continue;
+                chunkFailures.remove(failure);
+                if (chunkFailures.isEmpty()) byChunk.remove(chunk);
+            }
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package dev.arthomnix.spaghettitrees.sapling;
+
+// Implemented by ServerWorld through ServerWorldMixin
+public interface SaplingFailureCacheHolder {
+    SaplingFailureCache getSaplingFailureCache();
+}
@@ -0,0 +1,45 @@
+package dev.arthomnix.spaghettitrees.sim;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+
+import java.util.*;
+
+// Every write made while simulating one tree, in the order the replacers received them
+public class SimulatedTree {
+    public final List<BlockPos> positions = new ArrayList<>();
+    public final List<BlockState> states = new ArrayList<>();
+    // where the trunk and foliage placers wrote, as TreeFeature collects them for the decorators
+    public final Set<BlockPos> logs = new HashSet<>();
+    public final Set<BlockPos> leaves = new HashSet<>();
+    // the tree's random, as it was after the trunk and foliage were placed
+    public Random random;
+    // the trunk height the trunk placer was given
+    public int height = 0;
+    public int logCount = 0;
+    public int leafCount = 0;
+    public int decorationCount = 0;
+    // how many branches the BetterTrunkPlacer grew and how deeply they nested, 0 for other trunk placers
+    public int branchCount = 0;
+    public int maxDepth = 0;
+
+    void record(BlockPos pos, BlockState state) {
+        positions.add(pos.toImmutable());
+        states.add(state);
+    }
+
+    public int getBlockCount() {
+        return positions.size();
+    }
+
+    // Order-sensitive hash of every write, used to check that two runs of the same seed produced the same tree
+    public long hash() {
+        long hash = 1125899906842597L;
+        for (int i = 0; i < positions.size(); i++) {
+            hash = 31 * hash + positions.get(i).asLong();
+            hash = 31 * hash + Block.getRawIdFromState(states.get(i));
+        }
+        return hash;
+    }
+}
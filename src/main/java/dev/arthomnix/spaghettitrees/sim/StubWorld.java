@@ -0,0 +1,73 @@
+package dev.arthomnix.spaghettitrees.sim;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.Heightmap;
+import net.minecraft.world.TestableWorld;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+// A flat grass world that only stores the blocks written into it. Not thread safe, use one per thread.
+public class StubWorld implements TestableWorld {
+    public static final int DEFAULT_SURFACE_Y = 64;
+
+    private final int surfaceY; // the first block of air above the grass
+    private final Map<BlockPos, BlockState> blocks = new HashMap<>();
+    // with recordReads, the blocks tested before anything was written there, and whether anything asked for the heightmap
+    private Map<BlockPos, BlockState> reads;
+    private boolean readHeightmap = false;
+
+    public StubWorld() {
+        this(DEFAULT_SURFACE_Y);
+    }
+
+    public StubWorld(int surfaceY) {
+        this.surfaceY = surfaceY;
+    }
+
+    public BlockState getBlockState(BlockPos pos) {
+        BlockState state = blocks.get(pos);
+        if (state != null) return state;
+        if (pos.getY() < surfaceY - 1) return Blocks.DIRT.getDefaultState();
+        if (pos.getY() == surfaceY - 1) return Blocks.GRASS_BLOCK.getDefaultState();
+        return Blocks.AIR.getDefaultState();
+    }
+
+    public void setBlockState(BlockPos pos, BlockState state) {
+        blocks.put(pos.toImmutable(), state);
+    }
+
+    public void clear() {
+        blocks.clear();
+    }
+
+    // Starts keeping track of what is read from the world, so a tree generated against it can be checked against a real world (see ShapePrefetcher)
+    public void recordReads() {
+        reads = new LinkedHashMap<>();
+    }
+
+    public Map<BlockPos, BlockState> getReads() {
+        return reads;
+    }
+
+    public boolean hasReadHeightmap() {
+        return readHeightmap;
+    }
+
+    @Override
+    public boolean testBlockState(BlockPos pos, Predicate<BlockState> state) {
+        BlockState blockState = getBlockState(pos);
+        if (reads != null && !blocks.containsKey(pos) && !reads.containsKey(pos)) reads.put(pos.toImmutable(), blockState);
+        return state.test(blockState);
+    }
+
+    @Override
+    public BlockPos getTopPosition(Heightmap.Type heightmap, BlockPos pos) {
+        readHeightmap = true;
+        return new BlockPos(pos.getX(), surfaceY, pos.getZ());
+    }
+}
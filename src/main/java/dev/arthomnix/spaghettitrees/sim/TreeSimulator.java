@@ -0,0 +1,90 @@
+package dev.arthomnix.spaghettitrees.sim;
+
+import dev.arthomnix.spaghettitrees.tree.BranchingListener;
+import dev.arthomnix.spaghettitrees.util.FoliageUtil;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Vec3i;
+import net.minecraft.util.registry.BuiltinRegistries;
+import net.minecraft.util.registry.RegistryKey;
+import net.minecraft.world.gen.feature.ConfiguredFeature;
+import net.minecraft.world.gen.feature.TreeFeatureConfig;
+import net.minecraft.world.gen.foliage.FoliagePlacer;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+
+// Runs the same trunk, foliage and decorator stages as TreeFeature against a StubWorld, without needing a real world
+public class TreeSimulator {
+    // All of the spaghettitrees tree features, sorted by id
+    public static Map<String, TreeFeatureConfig> getTreeFeatures() {
+        Map<String, TreeFeatureConfig> features = new TreeMap<>();
+        for (Map.Entry<RegistryKey<ConfiguredFeature<?, ?>>, ConfiguredFeature<?, ?>> entry : BuiltinRegistries.CONFIGURED_FEATURE.getEntrySet()) {
+            if (entry.getKey().getValue().getNamespace().equals("spaghettitrees") && entry.getValue().config() instanceof TreeFeatureConfig config) {
+                features.put(entry.getKey().getValue().toString(), config);
+            }
+        }
+        return features;
+    }
+
+    public static SimulatedTree simulate(TreeFeatureConfig config, long seed, BlockPos origin, StubWorld world) {
+        SimulatedTree tree = simulateShape(config, seed, origin, world);
+        BiConsumer<BlockPos, BlockState> decorationReplacer = (pos, state) -> {
+            tree.decorationCount++;
+            tree.record(pos, state);
+            world.setBlockState(pos, state);
+        };
+        if ((!tree.logs.isEmpty() || !tree.leaves.isEmpty()) && !config.decorators.isEmpty()) {
+            List<BlockPos> logList = sortedByY(tree.logs);
+            List<BlockPos> leafList = sortedByY(tree.leaves);
+            config.decorators.forEach(decorator -> decorator.generate(world, decorationReplacer, tree.random, logList, leafList));
+        }
+        return tree;
+    }
+
+    // Only the trunk and foliage stages. The random calls made don't depend on the world, so the same seed always leaves tree.random in the same state.
+    public static SimulatedTree simulateShape(TreeFeatureConfig config, long seed, BlockPos origin, StubWorld world) {
+        SimulatedTree tree = new SimulatedTree();
+        Random random = new Random(seed);
+        BranchingListener trunkReplacer = new BranchingListener() {
+            @Override
+            public void accept(BlockPos pos, BlockState state) {
+                tree.logs.add(pos.toImmutable());
+                tree.logCount++;
+                tree.record(pos, state);
+                world.setBlockState(pos, state);
+            }
+
+            @Override
+            public void onBranching(int branchCount, int maxDepth) {
+                tree.branchCount = branchCount;
+                tree.maxDepth = maxDepth;
+            }
+        };
+        BiConsumer<BlockPos, BlockState> foliageReplacer = (pos, state) -> {
+            tree.leaves.add(pos.toImmutable());
+            tree.leafCount++;
+            tree.record(pos, state);
+            world.setBlockState(pos, state);
+        };
+
+        // same order of random calls as TreeFeature.generate, minus the space check (a StubWorld is always empty)
+        int height = config.trunkPlacer.getHeight(random);
+        int foliageHeight = config.foliagePlacer.getRandomHeight(random, height, config);
+        config.foliagePlacer.getRandomRadius(random, height - foliageHeight);
+        List<FoliagePlacer.TreeNode> nodes = config.trunkPlacer.generate(world, trunkReplacer, random, height, origin, config);
+        for (FoliagePlacer.TreeNode node : nodes) {
+            FoliageUtil.generateWithRandomizedFoliageRadius(config.foliagePlacer, world, foliageReplacer, random, config, height, node);
+        }
+        tree.random = random;
+        tree.height = height;
+        return tree;
+    }
+
+    // TreeFeature hands its decorators the positions sorted from the bottom of the tree up
+    public static List<BlockPos> sortedByY(Collection<BlockPos> positions) {
+        List<BlockPos> list = new ArrayList<>(positions);
+        list.sort(Comparator.comparingInt(Vec3i::getY));
+        return list;
+    }
+}
@@ -0,0 +1,225 @@
+package dev.arthomnix.spaghettitrees.sim;
+
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraft.block.BlockState;
+import net.minecraft.nbt.NbtHelper;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.util.math.BlockPos;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/*
+
+    Binary trace of generated trees: for each tree its feature id, origin, seed, every write its trunk, foliage and decorators made, in order, and what the world held where the tree looked before writing.
+    Feature ids and block states are written out in full the first time they appear and by index after that, and positions are varints relative to the tree's origin, all gzipped.
+
+    file:  "STTR" version:int tree*
+    tree:  1:byte feature origin:long seed:long decorated:boolean trunkWrites:varint foliageWrites:varint decoratorWrites:varint reads:varint write* read*
+    write: dx:zigzag dy:zigzag dz:zigzag state
+    read:  dx:zigzag dy:zigzag dz:zigzag state
+    feature and state are a varint index, followed by the id (writeUTF) or state (NbtHelper.fromBlockState) if the index is new
+    A 0 byte instead of a tree ends the file. Version 1 traces have no reads.
+
+*/
+public class TreeTrace {
+    private static final int MAGIC = 0x53545452;
+    private static final int VERSION = 2;
+
+    public static class TracedTree {
+        public final String featureId;
+        public final BlockPos origin;
+        public final long seed;
+        // false if lazy decoration deferred the tree's decorators, so there are no decorator writes
+        public final boolean decorated;
+        public final SimulatedTree writes;
+        // the state of every position the tree read before writing to it, in the order it first read them
+        public final Map<BlockPos, BlockState> reads;
+
+        public TracedTree(String featureId, BlockPos origin, long seed, boolean decorated, SimulatedTree writes, Map<BlockPos, BlockState> reads) {
+            this.featureId = featureId;
+            this.origin = origin;
+            this.seed = seed;
+            this.decorated = decorated;
+            this.writes = writes;
+            this.reads = reads;
+        }
+    }
+
+    public static class Writer implements Closeable {
+        private final DataOutputStream out;
+        private final Object2IntMap<String> features = new Object2IntOpenHashMap<>();
+        private final Object2IntMap<BlockState> states = new Object2IntOpenHashMap<>();
+        private long treeCount = 0;
+        private boolean closed = false;
+
+        public Writer(Path path) throws IOException {
+            out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(path))));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+        }
+
+        // Worldgen threads finish trees concurrently, and the indices have to be assigned in file order
+        // Trees finishing after close are dropped
+        public synchronized void write(TracedTree tree) throws IOException {
+            if (closed) return;
+            out.writeByte(1);
+            writeFeature(tree.featureId);
+            out.writeLong(tree.origin.asLong());
+            out.writeLong(tree.seed);
+            out.writeBoolean(tree.decorated);
+            SimulatedTree writes = tree.writes;
+            writeVarInt(writes.logCount);
+            writeVarInt(writes.leafCount);
+            writeVarInt(writes.decorationCount);
+            writeVarInt(tree.reads.size());
+            for (int i = 0; i < writes.positions.size(); i++) {
+                writePos(writes.positions.get(i), tree.origin);
+                writeState(writes.states.get(i));
+            }
+            for (Map.Entry<BlockPos, BlockState> read : tree.reads.entrySet()) {
+                writePos(read.getKey(), tree.origin);
+                writeState(read.getValue());
+            }
+            treeCount++;
+        }
+
+        private void writePos(BlockPos pos, BlockPos origin) throws IOException {
+            writeVarInt(zigzag(pos.getX() - origin.getX()));
+            writeVarInt(zigzag(pos.getY() - origin.getY()));
+            writeVarInt(zigzag(pos.getZ() - origin.getZ()));
+        }
+
+        public synchronized long getTreeCount() {
+            return treeCount;
+        }
+
+        private void writeFeature(String id) throws IOException {
+            int index = features.getOrDefault(id, -1);
+            if (index >= 0) {
+                writeVarInt(index);
+            } else {
+                writeVarInt(features.size());
+                out.writeUTF(id);
+                features.put(id, features.size());
+            }
+        }
+
+        private void writeState(BlockState state) throws IOException {
+            int index = states.getOrDefault(state, -1);
+            if (index >= 0) {
+                writeVarInt(index);
+            } else {
+                writeVarInt(states.size());
+                NbtIo.write(NbtHelper.fromBlockState(state), out);
+                states.put(state, states.size());
+            }
+        }
+
+        private void writeVarInt(int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                out.writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte(value);
+        }
+
+        private static int zigzag(int value) {
+            return (value << 1) ^ (value >> 31);
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            if (closed) return;
+            closed = true;
+            out.writeByte(0);
+            out.close();
+        }
+    }
+
+    public static class Reader implements Closeable {
+        private final DataInputStream in;
+        private final List<String> features = new ArrayList<>();
+        private final List<BlockState> states = new ArrayList<>();
+        private final int version;
+
+        public Reader(Path path) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(path))));
+            if (in.readInt() != MAGIC) throw new IOException(path + " isn't a tree trace");
+            version = in.readInt();
+            if (version < 1 || version > VERSION) throw new IOException(path + " is trace version " + version + ", expected " + VERSION);
+        }
+
+        // Returns the next tree, or null at the end of the trace (including a trace cut short by a crash)
+        public TracedTree read() throws IOException {
+            try {
+                if (in.readByte() == 0) return null;
+                String featureId = readFeature();
+                BlockPos origin = BlockPos.fromLong(in.readLong());
+                long seed = in.readLong();
+                boolean decorated = in.readBoolean();
+                SimulatedTree writes = new SimulatedTree();
+                writes.logCount = readVarInt();
+                writes.leafCount = readVarInt();
+                writes.decorationCount = readVarInt();
+                int readCount = version >= 2 ? readVarInt() : 0;
+                int count = writes.logCount + writes.leafCount + writes.decorationCount;
+                for (int i = 0; i < count; i++) {
+                    BlockPos pos = readPos(origin);
+                    writes.record(pos, readState());
+                }
+                Map<BlockPos, BlockState> reads = new LinkedHashMap<>();
+                for (int i = 0; i < readCount; i++) {
+                    BlockPos pos = readPos(origin);
+                    reads.put(pos, readState());
+                }
+                return new TracedTree(featureId, origin, seed, decorated, writes, reads);
+            } catch (EOFException e) {
+                return null;
+            }
+        }
+
+        private BlockPos readPos(BlockPos origin) throws IOException {
+            return origin.add(unzigzag(readVarInt()), unzigzag(readVarInt()), unzigzag(readVarInt()));
+        }
+
+        private String readFeature() throws IOException {
+            int index = readVarInt();
+            if (index == features.size()) features.add(in.readUTF());
+            return features.get(index);
+        }
+
+        private BlockState readState() throws IOException {
+            int index = readVarInt();
+            if (index == states.size()) states.add(NbtHelper.toBlockState(NbtIo.read(in)));
+            return states.get(index);
+        }
+
+        private int readVarInt() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                byte b = in.readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+            throw new IOException("VarInt too long");
+        }
+
+        private static int unzigzag(int value) {
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package dev.arthomnix.spaghettitrees.sim;
+
+import dev.arthomnix.spaghettitrees.util.RegistryUtil;
+import dev.arthomnix.spaghettitrees.util.SpaghettiTreesMetrics;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.gen.feature.TreeFeatureConfig;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/*
+
+    Records every spaghettitrees tree generated while /spaghettitrees trace is running into a TreeTrace, for TreeTraceReplay.
+    Like lazy decoration, a recorded tree is generated from a seed taken from the feature's random, so trees generated while recording differ from the ones the world would normally get.
+
+*/
+public class TreeTraceRecorder {
+    private static final Logger LOGGER = LogManager.getLogger("SpaghettiTrees");
+    private static final LongAdder RECORDED = SpaghettiTreesMetrics.counter("trace.trees_recorded");
+
+    private static volatile TreeTrace.Writer writer;
+    // the tree being generated on this thread, if it's being recorded
+    private static final ThreadLocal<Recording> CURRENT = new ThreadLocal<>();
+
+    private static class Recording {
+        private final String featureId;
+        private final BlockPos origin;
+        private final long seed;
+        private final Random random;
+        private final SimulatedTree tree = new SimulatedTree();
+        // what the world held at each position the tree read before writing to it
+        private final Map<BlockPos, BlockState> reads = new LinkedHashMap<>();
+        private final Set<BlockPos> touched = new HashSet<>();
+        private boolean decorated = false;
+
+        private Recording(String featureId, BlockPos origin, long seed, Random random) {
+            this.featureId = featureId;
+            this.origin = origin;
+            this.seed = seed;
+            this.random = random;
+        }
+    }
+
+    public static synchronized void start(Path path) throws IOException {
+        if (writer != null) throw new IllegalStateException("Already recording a trace");
+        writer = new TreeTrace.Writer(path);
+    }
+
+    // Returns the number of trees recorded
+    public static synchronized long stop() throws IOException {
+        TreeTrace.Writer current = writer;
+        if (current == null) throw new IllegalStateException("Not recording a trace");
+        writer = null;
+        current.close();
+        return current.getTreeCount();
+    }
+
+    public static boolean shouldRecord(TreeFeatureConfig config) {
+        return writer != null && RegistryUtil.getConfiguredFeatureIdentifier(config) != null;
+    }
+
+    // Starts recording a tree generated with random = new Random(seed), or stops recording on this thread if seed is null
+    public static void begin(TreeFeatureConfig config, BlockPos origin, Long seed, Random random) {
+        Identifier id = RegistryUtil.getConfiguredFeatureIdentifier(config);
+        if (seed == null || id == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(new Recording(id.toString(), origin.toImmutable(), seed, random));
+        }
+    }
+
+    public static boolean isRecording() {
+        return CURRENT.get() != null;
+    }
+
+    public static BiConsumer<BlockPos, BlockState> recordTrunk(BiConsumer<BlockPos, BlockState> replacer) {
+        Recording recording = CURRENT.get();
+        SimulatedTree tree = recording.tree;
+        return (pos, state) -> {
+            tree.logs.add(pos.toImmutable());
+            tree.logCount++;
+            tree.record(pos, state);
+            recording.touched.add(pos.toImmutable());
+            replacer.accept(pos, state);
+        };
+    }
+
+    public static BiConsumer<BlockPos, BlockState> recordFoliage(BiConsumer<BlockPos, BlockState> replacer) {
+        Recording recording = CURRENT.get();
+        SimulatedTree tree = recording.tree;
+        return (pos, state) -> {
+            tree.leaves.add(pos.toImmutable());
+            tree.leafCount++;
+            tree.record(pos, state);
+            recording.touched.add(pos.toImmutable());
+            replacer.accept(pos, state);
+        };
+    }
+
+    public static BiConsumer<BlockPos, BlockState> recordDecoration(BiConsumer<BlockPos, BlockState> replacer) {
+        Recording recording = CURRENT.get();
+        recording.decorated = true;
+        return (pos, state) -> {
+            recording.tree.decorationCount++;
+            recording.tree.record(pos, state);
+            recording.touched.add(pos.toImmutable());
+            replacer.accept(pos, state);
+        };
+    }
+
+    // Called by WorldMixin and ChunkRegionMixin for every testBlockState while recording. Only the first read of a position the tree hasn't written yet says anything about the world.
+    public static void recordRead(BlockPos pos, BlockState state) {
+        Recording recording = CURRENT.get();
+        BlockPos immutable = pos.toImmutable();
+        if (recording.touched.add(immutable)) recording.reads.put(immutable, state);
+    }
+
+    // the random the tree was generated with, which the decorators carry on using
+    public static Random getRandom() {
+        return CURRENT.get().random;
+    }
+
+    // The recorded logs and leaves, in the same order TreeFeature passes them to the decorators
+    public static List<BlockPos> getLogs() {
+        return TreeSimulator.sortedByY(CURRENT.get().tree.logs);
+    }
+
+    public static List<BlockPos> getLeaves() {
+        return TreeSimulator.sortedByY(CURRENT.get().tree.leaves);
+    }
+
+    public static void finish() {
+        Recording recording = CURRENT.get();
+        if (recording == null) return;
+        CURRENT.remove();
+        TreeTrace.Writer current = writer;
+        if (current == null) return;
+        try {
+            current.write(new TreeTrace.TracedTree(recording.featureId, recording.origin, recording.seed, recording.decorated, recording.tree, recording.reads));
+            RECORDED.increment();
+        } catch (IOException e) {
+            LOGGER.error("Couldn't write tree to trace", e);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package dev.arthomnix.spaghettitrees.sim;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.gen.feature.TreeFeatureConfig;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+
+    Generates every spaghettitrees tree over and over against stub worlds on a low priority thread after the server starts, so the JIT has compiled the trunk, foliage and decorator code before players start generating chunks.
+    The JVM doesn't say when particular methods have been compiled, so warm-up runs in rounds and stops once a round's time per tree is within a few percent of the previous round's, or after MAX_ROUNDS.
+    The JVM's total compilation time isn't used: it includes everything the rest of the server is compiling while it starts, which would keep warm-up running long after the tree code has settled.
+
+*/
+public class TreeWarmup {
+    private static final Logger LOGGER = LogManager.getLogger("SpaghettiTrees");
+    private static final int TREES_PER_ROUND = 200;
+    private static final int MIN_ROUNDS = 5;
+    private static final int MAX_ROUNDS = 100;
+    private static final double SETTLED_CHANGE = 0.05;
+
+    private static boolean started = false;
+
+    public static synchronized void start() {
+        if (started) return;
+        started = true;
+        Thread thread = new Thread(TreeWarmup::run, "SpaghettiTrees warm-up");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    private static void run() {
+        List<TreeFeatureConfig> configs = new ArrayList<>(TreeSimulator.getTreeFeatures().values());
+        if (configs.isEmpty()) return;
+        BlockPos origin = new BlockPos(0, StubWorld.DEFAULT_SURFACE_Y, 0);
+
+        long start = System.nanoTime();
+        long seed = 0;
+        double firstNanosPerTree = 0;
+        double previousNanosPerTree = 0;
+        double nanosPerTree = 0;
+        int rounds = 0;
+        boolean settled = false;
+        while (rounds < MAX_ROUNDS && !settled) {
+            long roundStart = System.nanoTime();
+            for (int i = 0; i < TREES_PER_ROUND; i++) {
+                for (TreeFeatureConfig config : configs) {
+                    TreeSimulator.simulate(config, seed++, origin, new StubWorld());
+                }
+            }
+            rounds++;
+            nanosPerTree = (double) (System.nanoTime() - roundStart) / (TREES_PER_ROUND * configs.size());
+            if (rounds == 1) firstNanosPerTree = nanosPerTree;
+            settled = rounds >= MIN_ROUNDS && Math.abs(nanosPerTree - previousNanosPerTree) <= SETTLED_CHANGE * previousNanosPerTree;
+            previousNanosPerTree = nanosPerTree;
+        }
+
+        LOGGER.info("SpaghettiTrees warm-up generated {} trees in {} ms{}: {} us per tree at first, {} us after warm-up ({}x faster)",
+                seed, (System.nanoTime() - start) / 1_000_000, settled ? "" : " without settling",
+                String.format("%.1f", firstNanosPerTree / 1000), String.format("%.1f", nanosPerTree / 1000),
+                String.format("%.1f", firstNanosPerTree / nanosPerTree));
+    }
+}
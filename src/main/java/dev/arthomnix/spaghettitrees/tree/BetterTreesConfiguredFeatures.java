@@ -1,9 +1,11 @@
 package dev.arthomnix.spaghettitrees.tree;
 
 import com.google.common.collect.ImmutableList;
+import dev.arthomnix.spaghettitrees.mixin.FoliagePlacerTypeInvoker;
 import dev.arthomnix.spaghettitrees.mixin.SimpleBlockStateProviderInvoker;
 import dev.arthomnix.spaghettitrees.mixin.TrunkPlacerTypeInvoker;
 import dev.arthomnix.spaghettitrees.util.RegistryUtil;
+import dev.arthomnix.spaghettitrees.util.StartupTimer;
 import net.minecraft.block.Block;
 import net.minecraft.block.Blocks;
 import net.minecraft.util.Identifier;
@@ -16,8 +18,7 @@ import net.minecraft.util.registry.RegistryKey;
 import net.minecraft.world.gen.feature.*;
 import net.minecraft.world.gen.feature.size.TwoLayersFeatureSize;
 import net.minecraft.world.gen.foliage.BlobFoliagePlacer;
-import net.minecraft.world.gen.foliage.BushFoliagePlacer;
-import net.minecraft.world.gen.foliage.LargeOakFoliagePlacer;
+import net.minecraft.world.gen.foliage.FoliagePlacerType;
 import net.minecraft.world.gen.treedecorator.BeehiveTreeDecorator;
 import net.minecraft.world.gen.treedecorator.LeavesVineTreeDecorator;
 import net.minecraft.world.gen.treedecorator.TrunkVineTreeDecorator;
@@ -29,9 +30,16 @@ import java.util.Random; // Needed for the bush variation code to function corre
 
 
 public class BetterTreesConfiguredFeatures {
+    static {
+        StartupTimer.begin("configured features");
+    }
+
     public static final TrunkPlacerType<BetterTrunkPlacer> BETTER_TRUNK_PLACER = TrunkPlacerTypeInvoker.callRegister("better_trunk_placer", BetterTrunkPlacer.CODEC);
     public static final TrunkPlacerType<DeadLogTrunkPlacer> DEAD_LOG_TRUNK_PLACER = TrunkPlacerTypeInvoker.callRegister("dead_log_trunk_placer", DeadLogTrunkPlacer.CODEC);
+    public static final FoliagePlacerType<MaskedLargeOakFoliagePlacer> MASKED_LARGE_OAK_FOLIAGE_PLACER = FoliagePlacerTypeInvoker.callRegister("masked_large_oak_foliage_placer", MaskedLargeOakFoliagePlacer.CODEC);
+    public static final FoliagePlacerType<MaskedBushFoliagePlacer> MASKED_BUSH_FOLIAGE_PLACER = FoliagePlacerTypeInvoker.callRegister("masked_bush_foliage_placer", MaskedBushFoliagePlacer.CODEC);
 
+    // Decorators are shared between features and may be used from several worldgen threads at once; they are immutable, so this is safe
     private static final BeehiveTreeDecorator BEES_RARE = new BeehiveTreeDecorator(0.002f);
     private static final BeehiveTreeDecorator BEES_COMMON = new BeehiveTreeDecorator(0.05f);
     private static final BeehiveTreeDecorator BEES_ALWAYS = new BeehiveTreeDecorator(1f);
@@ -76,16 +84,21 @@ public class BetterTreesConfiguredFeatures {
     public static final RegistryEntry<ConfiguredFeature<?, ?>> TREE_TALL_BETTER_BIRCH_RARE_BEES = RegistryUtil.registerConfiguredFeature(new Identifier("spaghettitrees", "tree_tall_better_birch_rare_bees"), Feature.TREE, birchBuilder(true, false).decorators(ImmutableList.of(BEES_RARE)).build());
     public static final RegistryEntry<ConfiguredFeature<?, ?>> TREE_BETTER_BIRCH_MORE_BEES = RegistryUtil.registerConfiguredFeature(new Identifier("spaghettitrees", "tree_better_birch_more_bees"), Feature.TREE, birchBuilder(false, false).decorators(ImmutableList.of(BEES_COMMON)).build());
 
-    public static RegistryEntry<ConfiguredFeature<?, ?>> BETTER_FOREST_TREES;
-    public static RegistryEntry<ConfiguredFeature<?, ?>> BETTER_BIRCH_FOREST_TREES;
-    public static RegistryEntry<ConfiguredFeature<?, ?>> BETTER_TALL_BIRCH_FOREST_TREES;
-    public static RegistryEntry<ConfiguredFeature<?, ?>> BETTER_DARK_FOREST_VEGETATION_BROWN;
-    public static RegistryEntry<ConfiguredFeature<?, ?>> BETTER_BAMBOO_JUNGLE_VEGETATION;
-    public static RegistryEntry<ConfiguredFeature<?, ?>> BETTER_JUNGLE_TREES;
-    public static RegistryEntry<ConfiguredFeature<?, ?>> BETTER_SPARSE_JUNGLE_TREES;
-    public static RegistryEntry<ConfiguredFeature<?, ?>> BETTER_SAVANNAH_TREES;
-    public static RegistryEntry<ConfiguredFeature<?, ?>> BETTER_MOUNTAIN_TREES;
-    public static RegistryEntry<ConfiguredFeature<?, ?>> BETTER_MEADOW_TREES;
+    static {
+        StartupTimer.end();
+    }
+
+    /*
+
+        The biome tree features pick between the placed features above, so they can only be created once BetterTreesPlacedFeatures has created those.
+        They live in their own holder class so that they can still be final: BiomeTreeFeatures is only initialised from BetterTreesPlacedFeatures, after the placed tree features.
+
+    */
+
+    static final class BiomeTreeFeatures {
+        static {
+            StartupTimer.begin("biome tree features");
+        }
 
     /*
     
@@ -93,8 +106,7 @@ public class BetterTreesConfiguredFeatures {
     
     */
     
-    protected static void registerBiomeTreeFeatures() {
-        BETTER_FOREST_TREES = RegistryUtil.registerConfiguredFeature(new Identifier("spaghettitrees", "better_forest_trees"), Feature.RANDOM_SELECTOR,
+        static final RegistryEntry<ConfiguredFeature<?, ?>> BETTER_FOREST_TREES = RegistryUtil.registerConfiguredFeature(new Identifier("spaghettitrees", "better_forest_trees"), Feature.RANDOM_SELECTOR,
                 new RandomFeatureConfig(
                         List.of(
                                 new RandomFeatureEntry(BetterTreesPlacedFeatures.TREE_BETTER_BIRCH_RARE_BEES, 0.1f),
@@ -118,7 +130,7 @@ public class BetterTreesConfiguredFeatures {
     
     */
         
-        BETTER_BIRCH_FOREST_TREES = RegistryUtil.registerConfiguredFeature(new Identifier("spaghettitrees", "better_birch_forest_trees"), Feature.RANDOM_SELECTOR,
+        static final RegistryEntry<ConfiguredFeature<?, ?>> BETTER_BIRCH_FOREST_TREES = RegistryUtil.registerConfiguredFeature(new Identifier("spaghettitrees", "better_birch_forest_trees"), Feature.RANDOM_SELECTOR,
                 new RandomFeatureConfig(
                         List.of(
                                 new RandomFeatureEntry(BetterTreesPlacedFeatures.DEAD_BIRCH_LOG, 0.22f),
@@ -131,7 +143,7 @@ public class BetterTreesConfiguredFeatures {
                 )
         );
 
-        BETTER_TALL_BIRCH_FOREST_TREES = RegistryUtil.registerConfiguredFeature(new Identifier("spaghettitrees", "better_tall_birch_forest_trees"), Feature.RANDOM_SELECTOR,
+        static final RegistryEntry<ConfiguredFeature<?, ?>> BETTER_TALL_BIRCH_FOREST_TREES = RegistryUtil.registerConfiguredFeature(new Identifier("spaghettitrees", "better_tall_birch_forest_trees"), Feature.RANDOM_SELECTOR,
                 new RandomFeatureConfig(
                         List.of(
                                 new RandomFeatureEntry(BetterTreesPlacedFeatures.DEAD_BIRCH_LOG, 0.22f),
@@ -143,7 +155,7 @@ public class BetterTreesConfiguredFeatures {
                 )
         );
 
-        BETTER_DARK_FOREST_VEGETATION_BROWN = RegistryUtil.registerConfiguredFeature(new Identifier("spaghettitrees", "better_dark_forest_vegetation"), Feature.RANDOM_SELECTOR,
+        static final RegistryEntry<ConfiguredFeature<?, ?>> BETTER_DARK_FOREST_VEGETATION_BROWN = RegistryUtil.registerConfiguredFeature(new Identifier("spaghettitrees", "better_dark_forest_vegetation"), Feature.RANDOM_SELECTOR,
                 new RandomFeatureConfig(
                         List.of(
                                 new RandomFeatureEntry(PlacedFeatures.createEntry(TreeConfiguredFeatures.HUGE_BROWN_MUSHROOM), 0.025f),
@@ -154,7 +166,7 @@ public class BetterTreesConfiguredFeatures {
                 )
         );
 
-        BETTER_BAMBOO_JUNGLE_VEGETATION = RegistryUtil.registerConfiguredFeature(new Identifier("spaghettitrees", "better_bamboo_jungle_vegetation"), Feature.RANDOM_SELECTOR,
+        static final RegistryEntry<ConfiguredFeature<?, ?>> BETTER_BAMBOO_JUNGLE_VEGETATION = RegistryUtil.registerConfiguredFeature(new Identifier("spaghettitrees", "better_bamboo_jungle_vegetation"), Feature.RANDOM_SELECTOR,
                 new RandomFeatureConfig(
                         List.of(
                                 new RandomFeatureEntry(BetterTreesPlacedFeatures.TREE_BETTER_OAK, 0.05f),
@@ -165,7 +177,7 @@ public class BetterTreesConfiguredFeatures {
                 )
         );
 
-        BETTER_JUNGLE_TREES = RegistryUtil.registerConfiguredFeature(new Identifier("spaghettitrees", "better_jungle_trees"), Feature.RANDOM_SELECTOR,
+        static final RegistryEntry<ConfiguredFeature<?, ?>> BETTER_JUNGLE_TREES = RegistryUtil.registerConfiguredFeature(new Identifier("spaghettitrees", "better_jungle_trees"), Feature.RANDOM_SELECTOR,
                 new RandomFeatureConfig(
                         List.of(
                                 new RandomFeatureEntry(BetterTreesPlacedFeatures.TREE_BETTER_OAK, 0.1f),
@@ -176,7 +188,7 @@ public class BetterTreesConfiguredFeatures {
                 )
         );
 
-        BETTER_SPARSE_JUNGLE_TREES = RegistryUtil.registerConfiguredFeature(new Identifier("spaghettitrees", "better_sparse_jungle_trees"), Feature.RANDOM_SELECTOR,
+        static final RegistryEntry<ConfiguredFeature<?, ?>> BETTER_SPARSE_JUNGLE_TREES = RegistryUtil.registerConfiguredFeature(new Identifier("spaghettitrees", "better_sparse_jungle_trees"), Feature.RANDOM_SELECTOR,
                 new RandomFeatureConfig(
                         List.of(
                                 new RandomFeatureEntry(BetterTreesPlacedFeatures.TREE_BETTER_OAK, 0.1f),
@@ -186,7 +198,7 @@ public class BetterTreesConfiguredFeatures {
                 )
         );
 
-        BETTER_SAVANNAH_TREES = RegistryUtil.registerConfiguredFeature(new Identifier("spaghettitrees", "better_savannah_trees"), Feature.RANDOM_SELECTOR,
+        static final RegistryEntry<ConfiguredFeature<?, ?>> BETTER_SAVANNAH_TREES = RegistryUtil.registerConfiguredFeature(new Identifier("spaghettitrees", "better_savannah_trees"), Feature.RANDOM_SELECTOR,
                 new RandomFeatureConfig(
                         List.of(
                                 new RandomFeatureEntry(TreePlacedFeatures.ACACIA_CHECKED, 0.8f)
@@ -195,7 +207,7 @@ public class BetterTreesConfiguredFeatures {
                 )
         );
 
-        BETTER_MOUNTAIN_TREES = RegistryUtil.registerConfiguredFeature(new Identifier("spaghettitrees", "better_mountain_trees"), Feature.RANDOM_SELECTOR,
+        static final RegistryEntry<ConfiguredFeature<?, ?>> BETTER_MOUNTAIN_TREES = RegistryUtil.registerConfiguredFeature(new Identifier("spaghettitrees", "better_mountain_trees"), Feature.RANDOM_SELECTOR,
                 new RandomFeatureConfig(
                         List.of(
                                 new RandomFeatureEntry(TreePlacedFeatures.SPRUCE_CHECKED, 2f / 3f)
@@ -204,7 +216,7 @@ public class BetterTreesConfiguredFeatures {
                 )
         );
 
-        BETTER_MEADOW_TREES = RegistryUtil.registerConfiguredFeature(new Identifier("spaghettitrees", "better_meadow_trees"), Feature.RANDOM_SELECTOR,
+        static final RegistryEntry<ConfiguredFeature<?, ?>> BETTER_MEADOW_TREES = RegistryUtil.registerConfiguredFeature(new Identifier("spaghettitrees", "better_meadow_trees"), Feature.RANDOM_SELECTOR,
                 new RandomFeatureConfig(
                         List.of(
                                 new RandomFeatureEntry(BetterTreesPlacedFeatures.TREE_BETTER_OAK_BEES, 0.5f)
@@ -212,6 +224,10 @@ public class BetterTreesConfiguredFeatures {
                         BetterTreesPlacedFeatures.TREE_BETTER_BIRCH_BEES
                 )
         );
+
+        static {
+            StartupTimer.end();
+        }
     }
 
     // Changed the block type from OAK_WOOD to OAK_LOG, as it is impossible to generate planks from OAK_WOOD
@@ -220,7 +236,7 @@ public class BetterTreesConfiguredFeatures {
                 SimpleBlockStateProviderInvoker.invokeCtor(Blocks.OAK_LOG.getDefaultState()),
                 new BetterTrunkPlacer(6, 6, 0, 0.85D, 1.25D, 0, 5, 0D, 1D, 0.3D, 0.95D),
                 SimpleBlockStateProviderInvoker.invokeCtor((dead ? Blocks.AIR : Blocks.OAK_LEAVES).getDefaultState()),
-                new LargeOakFoliagePlacer(BiasedToBottomIntProvider.create(1, 2), ConstantIntProvider.create(0), 2),
+                new MaskedLargeOakFoliagePlacer(BiasedToBottomIntProvider.create(1, 2), ConstantIntProvider.create(0), 2),
                 new TwoLayersFeatureSize(5, 0, 10)
         );
     }
@@ -232,7 +248,7 @@ public class BetterTreesConfiguredFeatures {
                 SimpleBlockStateProviderInvoker.invokeCtor(Blocks.BIRCH_LOG.getDefaultState()),
                 new BetterTrunkPlacer(tall ? 10 : 5, tall ? 10 : 3, 0, 0.75D, 2D, 2, 5, 0D, 1D, 0.45D, 1D),
                 SimpleBlockStateProviderInvoker.invokeCtor((dead ? Blocks.AIR : Blocks.BIRCH_LEAVES).getDefaultState()),
-                new LargeOakFoliagePlacer(BiasedToBottomIntProvider.create(1, 2), ConstantIntProvider.create(0), 2),
+                new MaskedLargeOakFoliagePlacer(BiasedToBottomIntProvider.create(1, 2), ConstantIntProvider.create(0), 2),
                 new TwoLayersFeatureSize(5, 0, 10)
         );
     }
@@ -278,7 +294,7 @@ public class BetterTreesConfiguredFeatures {
                 SimpleBlockStateProviderInvoker.invokeCtor(bush_stump.getDefaultState()),
                 new StraightTrunkPlacer(1, 1, 0),
                 SimpleBlockStateProviderInvoker.invokeCtor(bush_leaf.getDefaultState()),
-                new BushFoliagePlacer(BiasedToBottomIntProvider.create(1, 2), ConstantIntProvider.create(1), 2),
+                new MaskedBushFoliagePlacer(BiasedToBottomIntProvider.create(1, 2), ConstantIntProvider.create(1), 2),
                 new TwoLayersFeatureSize(1, 2, 2)
         );
     }
@@ -1,48 +1,47 @@
 package dev.arthomnix.spaghettitrees.tree;
 
 import com.google.common.collect.ImmutableList;
+import dev.arthomnix.spaghettitrees.placement.PlantableSurfacePlacementModifier;
+import dev.arthomnix.spaghettitrees.placement.SaplingSurvivalPlacementModifier;
+import dev.arthomnix.spaghettitrees.placement.TreeDensityPlacementModifier;
+import dev.arthomnix.spaghettitrees.placement.TreeSpacingPlacementModifier;
 import dev.arthomnix.spaghettitrees.util.RegistryUtil;
+import dev.arthomnix.spaghettitrees.util.StartupTimer;
 import net.minecraft.block.Blocks;
 import net.minecraft.util.Identifier;
-import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.registry.Registry;
 import net.minecraft.util.registry.RegistryEntry;
-import net.minecraft.world.gen.blockpredicate.BlockPredicate;
 import net.minecraft.world.gen.feature.PlacedFeature;
 import net.minecraft.world.gen.feature.PlacedFeatures;
 import net.minecraft.world.gen.feature.VegetationPlacedFeatures;
 import net.minecraft.world.gen.placementmodifier.*;
 
+import java.util.List;
+
 public class BetterTreesPlacedFeatures {
+    static {
+        StartupTimer.begin("placed features");
+    }
+
+    public static final PlacementModifierType<SaplingSurvivalPlacementModifier> SAPLING_SURVIVAL = Registry.register(Registry.PLACEMENT_MODIFIER_TYPE, new Identifier("spaghettitrees", "sapling_survival"), () -> SaplingSurvivalPlacementModifier.MODIFIER_CODEC);
+    public static final PlacementModifierType<PlantableSurfacePlacementModifier> PLANTABLE_SURFACE = Registry.register(Registry.PLACEMENT_MODIFIER_TYPE, new Identifier("spaghettitrees", "plantable_surface"), () -> PlantableSurfacePlacementModifier.MODIFIER_CODEC);
+    public static final PlacementModifierType<TreeSpacingPlacementModifier> TREE_SPACING = Registry.register(Registry.PLACEMENT_MODIFIER_TYPE, new Identifier("spaghettitrees", "tree_spacing"), () -> TreeSpacingPlacementModifier.MODIFIER_CODEC);
+    public static final PlacementModifierType<TreeDensityPlacementModifier> TREE_DENSITY = Registry.register(Registry.PLACEMENT_MODIFIER_TYPE, new Identifier("spaghettitrees", "tree_density"), () -> TreeDensityPlacementModifier.MODIFIER_CODEC);
+
     public static final RegistryEntry<PlacedFeature> DEAD_OAK_LOG = RegistryUtil.registerPlacedFeature(new Identifier("spaghettitrees", "placed_dead_oak_log"), new PlacedFeature(BetterTreesConfiguredFeatures.DEAD_OAK_LOG, ImmutableList.of(
-            BlockFilterPlacementModifier.of(
-                    BlockPredicate.wouldSurvive(
-                            Blocks.OAK_SAPLING.getDefaultState(), BlockPos.ORIGIN
-                    )
-            )
+            SaplingSurvivalPlacementModifier.of(Blocks.OAK_SAPLING)
     )));
 
     public static final RegistryEntry<PlacedFeature> DEAD_BIRCH_LOG = RegistryUtil.registerPlacedFeature(new Identifier("spaghettitrees", "placed_dead_birch_log"), new PlacedFeature(BetterTreesConfiguredFeatures.DEAD_BIRCH_LOG, ImmutableList.of(
-            BlockFilterPlacementModifier.of(
-                    BlockPredicate.wouldSurvive(
-                            Blocks.BIRCH_SAPLING.getDefaultState(), BlockPos.ORIGIN
-                    )
-            )
+            SaplingSurvivalPlacementModifier.of(Blocks.BIRCH_SAPLING)
     )));
 
     public static final RegistryEntry<PlacedFeature> OAK_STUMP = RegistryUtil.registerPlacedFeature(new Identifier("spaghettitrees", "placed_oak_stump"), new PlacedFeature(BetterTreesConfiguredFeatures.OAK_STUMP, ImmutableList.of(
-            BlockFilterPlacementModifier.of(
-                    BlockPredicate.wouldSurvive(
-                            Blocks.OAK_SAPLING.getDefaultState(), BlockPos.ORIGIN
-                    )
-            )
+            SaplingSurvivalPlacementModifier.of(Blocks.OAK_SAPLING)
     )));
 
     public static final RegistryEntry<PlacedFeature> BIRCH_STUMP = RegistryUtil.registerPlacedFeature(new Identifier("spaghettitrees", "placed_birch_stump"), new PlacedFeature(BetterTreesConfiguredFeatures.BIRCH_STUMP, ImmutableList.of(
-            BlockFilterPlacementModifier.of(
-                    BlockPredicate.wouldSurvive(
-                            Blocks.BIRCH_SAPLING.getDefaultState(), BlockPos.ORIGIN
-                    )
-            )
+            SaplingSurvivalPlacementModifier.of(Blocks.BIRCH_SAPLING)
     )));
 
    /*
@@ -52,131 +51,77 @@ public class BetterTreesPlacedFeatures {
     */
     
     public static final RegistryEntry<PlacedFeature> UNDERGROWTH_BUSH_ONE = RegistryUtil.registerPlacedFeature(new Identifier("spaghettitrees", "placed_undergrowth_bush_one"), new PlacedFeature(BetterTreesConfiguredFeatures.UNDERGROWTH_BUSH_ONE, ImmutableList.of(
-            BlockFilterPlacementModifier.of(
-                    BlockPredicate.wouldSurvive(
-                            Blocks.OAK_SAPLING.getDefaultState(), BlockPos.ORIGIN
-                    )
-            )
+            SaplingSurvivalPlacementModifier.of(Blocks.OAK_SAPLING)
     )));
     public static final RegistryEntry<PlacedFeature> UNDERGROWTH_BUSH_TWO = RegistryUtil.registerPlacedFeature(new Identifier("spaghettitrees", "placed_undergrowth_bush_two"), new PlacedFeature(BetterTreesConfiguredFeatures.UNDERGROWTH_BUSH_TWO, ImmutableList.of(
-            BlockFilterPlacementModifier.of(
-                    BlockPredicate.wouldSurvive(
-                            Blocks.OAK_SAPLING.getDefaultState(), BlockPos.ORIGIN
-                    )
-            )
+            SaplingSurvivalPlacementModifier.of(Blocks.OAK_SAPLING)
     )));
     public static final RegistryEntry<PlacedFeature> UNDERGROWTH_BUSH_THREE = RegistryUtil.registerPlacedFeature(new Identifier("spaghettitrees", "placed_undergrowth_bush_three"), new PlacedFeature(BetterTreesConfiguredFeatures.UNDERGROWTH_BUSH_THREE, ImmutableList.of(
-            BlockFilterPlacementModifier.of(
-                    BlockPredicate.wouldSurvive(
-                            Blocks.OAK_SAPLING.getDefaultState(), BlockPos.ORIGIN
-                    )
-            )
+            SaplingSurvivalPlacementModifier.of(Blocks.OAK_SAPLING)
     )));
 
     public static final RegistryEntry<PlacedFeature> TREE_BETTER_OAK = RegistryUtil.registerPlacedFeature(new Identifier("spaghettitrees", "placed_tree_better_oak"), new PlacedFeature(BetterTreesConfiguredFeatures.TREE_BETTER_OAK, ImmutableList.of(
-            BlockFilterPlacementModifier.of(
-                    BlockPredicate.wouldSurvive(
-                            Blocks.OAK_SAPLING.getDefaultState(), BlockPos.ORIGIN
-                    )
-            )
+            SaplingSurvivalPlacementModifier.of(Blocks.OAK_SAPLING)
     )));
 
     public static final RegistryEntry<PlacedFeature> TREE_DEAD_OAK = RegistryUtil.registerPlacedFeature(new Identifier("spaghettitrees", "placed_tree_dead_oak"), new PlacedFeature(BetterTreesConfiguredFeatures.TREE_DEAD_OAK, ImmutableList.of(
-            BlockFilterPlacementModifier.of(
-                    BlockPredicate.wouldSurvive(
-                            Blocks.OAK_SAPLING.getDefaultState(), BlockPos.ORIGIN
-                    )
-            )
+            SaplingSurvivalPlacementModifier.of(Blocks.OAK_SAPLING)
     )));
 
     public static final RegistryEntry<PlacedFeature> TREE_BETTER_OAK_RARE_BEES = RegistryUtil.registerPlacedFeature(new Identifier("spaghettitrees", "placed_tree_better_oak_rare_bees"), new PlacedFeature(BetterTreesConfiguredFeatures.TREE_BETTER_OAK_RARE_BEES, ImmutableList.of(
-            BlockFilterPlacementModifier.of(
-                    BlockPredicate.wouldSurvive(
-                            Blocks.OAK_SAPLING.getDefaultState(), BlockPos.ORIGIN
-                    )
-            )
+            SaplingSurvivalPlacementModifier.of(Blocks.OAK_SAPLING)
     )));
 
     public static final RegistryEntry<PlacedFeature> TREE_BETTER_OAK_BEES = RegistryUtil.registerPlacedFeature(new Identifier("spaghettitrees", "placed_tree_better_oak_bees"), new PlacedFeature(BetterTreesConfiguredFeatures.TREE_BETTER_OAK_BEES, ImmutableList.of(
-            BlockFilterPlacementModifier.of(
-                    BlockPredicate.wouldSurvive(
-                            Blocks.OAK_SAPLING.getDefaultState(), BlockPos.ORIGIN
-                    )
-            )
+            SaplingSurvivalPlacementModifier.of(Blocks.OAK_SAPLING)
     )));
 
     public static final RegistryEntry<PlacedFeature> TREE_BETTER_BIRCH = RegistryUtil.registerPlacedFeature(new Identifier("spaghettitrees", "placed_tree_better_birch"), new PlacedFeature(BetterTreesConfiguredFeatures.TREE_BETTER_BIRCH, ImmutableList.of(
-            BlockFilterPlacementModifier.of(
-                    BlockPredicate.wouldSurvive(
-                            Blocks.BIRCH_SAPLING.getDefaultState(), BlockPos.ORIGIN
-                    )
-            )
+            SaplingSurvivalPlacementModifier.of(Blocks.BIRCH_SAPLING)
     )));
 
     public static final RegistryEntry<PlacedFeature> TREE_DEAD_BIRCH = RegistryUtil.registerPlacedFeature(new Identifier("spaghettitrees", "placed_tree_dead_birch"), new PlacedFeature(BetterTreesConfiguredFeatures.TREE_DEAD_BIRCH, ImmutableList.of(
-            BlockFilterPlacementModifier.of(
-                    BlockPredicate.wouldSurvive(
-                            Blocks.BIRCH_SAPLING.getDefaultState(), BlockPos.ORIGIN
-                    )
-            )
+            SaplingSurvivalPlacementModifier.of(Blocks.BIRCH_SAPLING)
     )));
 
     public static final RegistryEntry<PlacedFeature> TREE_TALL_DEAD_BIRCH = RegistryUtil.registerPlacedFeature(new Identifier("spaghettitrees", "placed_tree_tall_dead_birch"), new PlacedFeature(BetterTreesConfiguredFeatures.TREE_TALL_DEAD_BIRCH, ImmutableList.of(
-            BlockFilterPlacementModifier.of(
-                    BlockPredicate.wouldSurvive(
-                            Blocks.BIRCH_SAPLING.getDefaultState(), BlockPos.ORIGIN
-                    )
-            )
+            SaplingSurvivalPlacementModifier.of(Blocks.BIRCH_SAPLING)
     )));
 
     public static final RegistryEntry<PlacedFeature> TREE_BETTER_BIRCH_RARE_BEES = RegistryUtil.registerPlacedFeature(new Identifier("spaghettitrees", "placed_tree_better_birch_rare_bees"), new PlacedFeature(BetterTreesConfiguredFeatures.TREE_BETTER_BIRCH_RARE_BEES, ImmutableList.of(
-            BlockFilterPlacementModifier.of(
-                    BlockPredicate.wouldSurvive(
-                            Blocks.BIRCH_SAPLING.getDefaultState(), BlockPos.ORIGIN
-                    )
-            )
+            SaplingSurvivalPlacementModifier.of(Blocks.BIRCH_SAPLING)
     )));
 
     public static final RegistryEntry<PlacedFeature> TREE_BETTER_BIRCH_BEES = RegistryUtil.registerPlacedFeature(new Identifier("spaghettitrees", "placed_tree_better_birch_bees"), new PlacedFeature(BetterTreesConfiguredFeatures.TREE_BETTER_BIRCH_BEES, ImmutableList.of(
-            BlockFilterPlacementModifier.of(
-                    BlockPredicate.wouldSurvive(
-                            Blocks.BIRCH_SAPLING.getDefaultState(), BlockPos.ORIGIN
-                    )
-            )
+            SaplingSurvivalPlacementModifier.of(Blocks.BIRCH_SAPLING)
     )));
 
     public static final RegistryEntry<PlacedFeature> TREE_TALL_BETTER_BIRCH_RARE_BEES = RegistryUtil.registerPlacedFeature(new Identifier("spaghettitrees", "placed_tree_tall_better_birch_rare_bees"), new PlacedFeature(BetterTreesConfiguredFeatures.TREE_TALL_BETTER_BIRCH_RARE_BEES, ImmutableList.of(
-            BlockFilterPlacementModifier.of(
-                    BlockPredicate.wouldSurvive(
-                            Blocks.BIRCH_SAPLING.getDefaultState(), BlockPos.ORIGIN
-                    )
-            )
+            SaplingSurvivalPlacementModifier.of(Blocks.BIRCH_SAPLING)
     )));
 
-    static {
-        BetterTreesConfiguredFeatures.registerBiomeTreeFeatures();
-    }
+    // Everything below here uses BetterTreesConfiguredFeatures.BiomeTreeFeatures, which needs the placed features above
 
-    public static final RegistryEntry<PlacedFeature> BETTER_FOREST_TREES = RegistryUtil.registerPlacedFeature(new Identifier("spaghettitrees", "placed_better_forest_trees"), new PlacedFeature(BetterTreesConfiguredFeatures.BETTER_FOREST_TREES,
-            VegetationPlacedFeatures.modifiers(
+    public static final RegistryEntry<PlacedFeature> BETTER_FOREST_TREES = RegistryUtil.registerPlacedFeature(new Identifier("spaghettitrees", "placed_better_forest_trees"), new PlacedFeature(BetterTreesConfiguredFeatures.BiomeTreeFeatures.BETTER_FOREST_TREES,
+            plantableSurfaceModifiers(
                     PlacedFeatures.createCountExtraModifier(8, 0.1f, 1)
             )
     ));
 
-    public static final RegistryEntry<PlacedFeature> BETTER_FLOWER_FOREST_TREES = RegistryUtil.registerPlacedFeature(new Identifier("spaghettitrees", "placed_better_flower_forest_trees"), new PlacedFeature(BetterTreesConfiguredFeatures.BETTER_FOREST_TREES,
-            VegetationPlacedFeatures.modifiers(
+    public static final RegistryEntry<PlacedFeature> BETTER_FLOWER_FOREST_TREES = RegistryUtil.registerPlacedFeature(new Identifier("spaghettitrees", "placed_better_flower_forest_trees"), new PlacedFeature(BetterTreesConfiguredFeatures.BiomeTreeFeatures.BETTER_FOREST_TREES,
+            plantableSurfaceModifiers(
                     PlacedFeatures.createCountExtraModifier(3, 0.1f, 1)
             )
     ));
 
-    public static final RegistryEntry<PlacedFeature> BETTER_BIRCH_FOREST_TREES = RegistryUtil.registerPlacedFeature(new Identifier("spaghettitrees", "placed_better_birch_forest_trees"), new PlacedFeature(BetterTreesConfiguredFeatures.BETTER_BIRCH_FOREST_TREES,
-            VegetationPlacedFeatures.modifiers(
+    public static final RegistryEntry<PlacedFeature> BETTER_BIRCH_FOREST_TREES = RegistryUtil.registerPlacedFeature(new Identifier("spaghettitrees", "placed_better_birch_forest_trees"), new PlacedFeature(BetterTreesConfiguredFeatures.BiomeTreeFeatures.BETTER_BIRCH_FOREST_TREES,
+            plantableSurfaceModifiers(
                     PlacedFeatures.createCountExtraModifier(8, 0.1f, 1)
             )
     ));
 
-    public static final RegistryEntry<PlacedFeature> BETTER_TALL_BIRCH_FOREST_TREES = RegistryUtil.registerPlacedFeature(new Identifier("spaghettitrees", "placed_better_tall_birch_forest_trees"), new PlacedFeature(BetterTreesConfiguredFeatures.BETTER_TALL_BIRCH_FOREST_TREES,
-            VegetationPlacedFeatures.modifiers(
+    public static final RegistryEntry<PlacedFeature> BETTER_TALL_BIRCH_FOREST_TREES = RegistryUtil.registerPlacedFeature(new Identifier("spaghettitrees", "placed_better_tall_birch_forest_trees"), new PlacedFeature(BetterTreesConfiguredFeatures.BiomeTreeFeatures.BETTER_TALL_BIRCH_FOREST_TREES,
+            plantableSurfaceModifiers(
                     PlacedFeatures.createCountExtraModifier(8, 0.1f, 1)
             )
     ));
@@ -195,54 +140,54 @@ public class BetterTreesPlacedFeatures {
             )
     ));
 
-    public static final RegistryEntry<PlacedFeature> BETTER_DARK_FOREST_VEGETATION = RegistryUtil.registerPlacedFeature(new Identifier("spaghettitrees", "placed_better_dark_forest_vegetation"), new PlacedFeature(BetterTreesConfiguredFeatures.BETTER_DARK_FOREST_VEGETATION_BROWN, ImmutableList.of(
+    public static final RegistryEntry<PlacedFeature> BETTER_DARK_FOREST_VEGETATION = RegistryUtil.registerPlacedFeature(new Identifier("spaghettitrees", "placed_better_dark_forest_vegetation"), new PlacedFeature(BetterTreesConfiguredFeatures.BiomeTreeFeatures.BETTER_DARK_FOREST_VEGETATION_BROWN, ImmutableList.of(
             CountPlacementModifier.of(16),
             SquarePlacementModifier.of(),
             SurfaceWaterDepthFilterPlacementModifier.of(0),
             PlacedFeatures.OCEAN_FLOOR_HEIGHTMAP,
-            BlockFilterPlacementModifier.of(
-                    BlockPredicate.wouldSurvive(Blocks.OAK_SAPLING.getDefaultState(), BlockPos.ORIGIN)
-            ),
-            BiomePlacementModifier.of()
+            PlantableSurfacePlacementModifier.of(),
+            SaplingSurvivalPlacementModifier.of(Blocks.OAK_SAPLING),
+            BiomePlacementModifier.of(),
+            TreeSpacingPlacementModifier.of()
     )));
 
-    public static final RegistryEntry<PlacedFeature> BETTER_BAMBOO_JUNGLE_VEGETATION = RegistryUtil.registerPlacedFeature(new Identifier("spaghettitrees", "placed_better_bamboo_jungle_vegetation"), new PlacedFeature(BetterTreesConfiguredFeatures.BETTER_BAMBOO_JUNGLE_VEGETATION,
-            VegetationPlacedFeatures.modifiers(
+    public static final RegistryEntry<PlacedFeature> BETTER_BAMBOO_JUNGLE_VEGETATION = RegistryUtil.registerPlacedFeature(new Identifier("spaghettitrees", "placed_better_bamboo_jungle_vegetation"), new PlacedFeature(BetterTreesConfiguredFeatures.BiomeTreeFeatures.BETTER_BAMBOO_JUNGLE_VEGETATION,
+            withTreeSpacing(VegetationPlacedFeatures.modifiers(
                     PlacedFeatures.createCountExtraModifier(30, 0.1f, 1)
-            )
+            ))
     ));
 
-    public static final RegistryEntry<PlacedFeature> BETTER_JUNGLE_TREES = RegistryUtil.registerPlacedFeature(new Identifier("spaghettitrees", "placed_better_jungle_trees"), new PlacedFeature(BetterTreesConfiguredFeatures.BETTER_JUNGLE_TREES,
-            VegetationPlacedFeatures.modifiers(
+    public static final RegistryEntry<PlacedFeature> BETTER_JUNGLE_TREES = RegistryUtil.registerPlacedFeature(new Identifier("spaghettitrees", "placed_better_jungle_trees"), new PlacedFeature(BetterTreesConfiguredFeatures.BiomeTreeFeatures.BETTER_JUNGLE_TREES,
+            withTreeSpacing(plantableSurfaceModifiers(
                     PlacedFeatures.createCountExtraModifier(50, 0.1f, 1)
-            )
+            ))
     ));
 
-    public static final RegistryEntry<PlacedFeature> BETTER_SPARSE_JUNGLE_TREES = RegistryUtil.registerPlacedFeature(new Identifier("spaghettitrees", "placed_better_sparse_jungle_trees"), new PlacedFeature(BetterTreesConfiguredFeatures.BETTER_SPARSE_JUNGLE_TREES,
+    public static final RegistryEntry<PlacedFeature> BETTER_SPARSE_JUNGLE_TREES = RegistryUtil.registerPlacedFeature(new Identifier("spaghettitrees", "placed_better_sparse_jungle_trees"), new PlacedFeature(BetterTreesConfiguredFeatures.BiomeTreeFeatures.BETTER_SPARSE_JUNGLE_TREES,
             VegetationPlacedFeatures.modifiers(
                     PlacedFeatures.createCountExtraModifier(2, 0.1f, 1)
             )
     ));
 
-    public static final RegistryEntry<PlacedFeature> BETTER_SAVANNAH_TREES = RegistryUtil.registerPlacedFeature(new Identifier("spaghettitrees", "placed_better_savannah_trees"), new PlacedFeature(BetterTreesConfiguredFeatures.BETTER_SAVANNAH_TREES,
+    public static final RegistryEntry<PlacedFeature> BETTER_SAVANNAH_TREES = RegistryUtil.registerPlacedFeature(new Identifier("spaghettitrees", "placed_better_savannah_trees"), new PlacedFeature(BetterTreesConfiguredFeatures.BiomeTreeFeatures.BETTER_SAVANNAH_TREES,
             VegetationPlacedFeatures.modifiers(
                     PlacedFeatures.createCountExtraModifier(1, 0.1f, 1)
             )
     ));
 
-    public static final RegistryEntry<PlacedFeature> BETTER_WINDSWEPT_SAVANNAH_TREES = RegistryUtil.registerPlacedFeature(new Identifier("spaghettitrees", "placed_better_windswept_savannah_trees"), new PlacedFeature(BetterTreesConfiguredFeatures.BETTER_SAVANNAH_TREES,
+    public static final RegistryEntry<PlacedFeature> BETTER_WINDSWEPT_SAVANNAH_TREES = RegistryUtil.registerPlacedFeature(new Identifier("spaghettitrees", "placed_better_windswept_savannah_trees"), new PlacedFeature(BetterTreesConfiguredFeatures.BiomeTreeFeatures.BETTER_SAVANNAH_TREES,
             VegetationPlacedFeatures.modifiers(
                     PlacedFeatures.createCountExtraModifier(2, 0.1f, 1)
             )
     ));
 
-    public static final RegistryEntry<PlacedFeature> BETTER_WINDSWEPT_HILLS_TREES = RegistryUtil.registerPlacedFeature(new Identifier("spaghettitrees", "placed_better_windswept_hills_trees"), new PlacedFeature(BetterTreesConfiguredFeatures.BETTER_MOUNTAIN_TREES,
+    public static final RegistryEntry<PlacedFeature> BETTER_WINDSWEPT_HILLS_TREES = RegistryUtil.registerPlacedFeature(new Identifier("spaghettitrees", "placed_better_windswept_hills_trees"), new PlacedFeature(BetterTreesConfiguredFeatures.BiomeTreeFeatures.BETTER_MOUNTAIN_TREES,
             VegetationPlacedFeatures.modifiers(
                     PlacedFeatures.createCountExtraModifier(0, 0.1f,1)
             )
     ));
 
-    public static final RegistryEntry<PlacedFeature> BETTER_WINDSWEPT_FOREST_TREES = RegistryUtil.registerPlacedFeature(new Identifier("spaghettitrees", "placed_better_windswept_forest_trees"), new PlacedFeature(BetterTreesConfiguredFeatures.BETTER_MOUNTAIN_TREES,
+    public static final RegistryEntry<PlacedFeature> BETTER_WINDSWEPT_FOREST_TREES = RegistryUtil.registerPlacedFeature(new Identifier("spaghettitrees", "placed_better_windswept_forest_trees"), new PlacedFeature(BetterTreesConfiguredFeatures.BiomeTreeFeatures.BETTER_MOUNTAIN_TREES,
             VegetationPlacedFeatures.modifiers(
                     PlacedFeatures.createCountExtraModifier(2, 0.1f, 1)
             )
@@ -254,21 +199,44 @@ public class BetterTreesPlacedFeatures {
             SurfaceWaterDepthFilterPlacementModifier.of(2),
             PlacedFeatures.OCEAN_FLOOR_HEIGHTMAP,
             BiomePlacementModifier.of(),
-            BlockFilterPlacementModifier.of(
-                    BlockPredicate.wouldSurvive(Blocks.OAK_SAPLING.getDefaultState(), BlockPos.ORIGIN)
-            )
+            SaplingSurvivalPlacementModifier.of(Blocks.OAK_SAPLING)
     )));
 
     public static final RegistryEntry<PlacedFeature> BETTER_BADLANDS_TREES = RegistryUtil.registerPlacedFeature(new Identifier("spaghettitrees", "placed_better_badlands_trees"), new PlacedFeature(BetterTreesConfiguredFeatures.TREE_BETTER_OAK,
-            VegetationPlacedFeatures.modifiersWithWouldSurvive(
-                    PlacedFeatures.createCountExtraModifier(5, 0.1f, 1),
-                    Blocks.OAK_SAPLING
-            )
+            ImmutableList.<PlacementModifier>builder()
+                    .addAll(plantableSurfaceModifiers(PlacedFeatures.createCountExtraModifier(5, 0.1f, 1)))
+                    .add(SaplingSurvivalPlacementModifier.of(Blocks.OAK_SAPLING))
+                    .build()
     ));
 
-    public static final RegistryEntry<PlacedFeature> BETTER_MEADOW_TREES = RegistryUtil.registerPlacedFeature(new Identifier("spaghettitrees", "placed_better_meadow_trees"), new PlacedFeature(BetterTreesConfiguredFeatures.BETTER_MEADOW_TREES,
+    public static final RegistryEntry<PlacedFeature> BETTER_MEADOW_TREES = RegistryUtil.registerPlacedFeature(new Identifier("spaghettitrees", "placed_better_meadow_trees"), new PlacedFeature(BetterTreesConfiguredFeatures.BiomeTreeFeatures.BETTER_MEADOW_TREES,
             VegetationPlacedFeatures.modifiers(
                     RarityFilterPlacementModifier.of(100)
             )
     ));
+
+    static {
+        StartupTimer.end();
+    }
+
+    // The same as VegetationPlacedFeatures.modifiers, plus a PlantableSurfacePlacementModifier to skip attempts that can't grow a tree
+    // Only for features whose trees all check that a sapling would survive, as the modifier drops the attempts those checks would fail
+    private static List<PlacementModifier> plantableSurfaceModifiers(PlacementModifier countModifier) {
+        return ImmutableList.of(
+                countModifier,
+                SquarePlacementModifier.of(),
+                SurfaceWaterDepthFilterPlacementModifier.of(0),
+                PlacedFeatures.OCEAN_FLOOR_HEIGHTMAP,
+                PlantableSurfacePlacementModifier.of(),
+                BiomePlacementModifier.of()
+        );
+    }
+
+    // For the densest features, where many attempts land next to a tree that's already there
+    private static List<PlacementModifier> withTreeSpacing(List<PlacementModifier> modifiers) {
+        return ImmutableList.<PlacementModifier>builder()
+                .addAll(modifiers)
+                .add(TreeSpacingPlacementModifier.of())
+                .build();
+    }
 }
@@ -1,7 +1,12 @@
 package dev.arthomnix.spaghettitrees.tree;
 
+import com.mojang.datafixers.Products;
 import com.mojang.serialization.Codec;
 import com.mojang.serialization.codecs.RecordCodecBuilder;
+import dev.arthomnix.spaghettitrees.config.TreeBudgets;
+import dev.arthomnix.spaghettitrees.jfr.CountingReplacer;
+import dev.arthomnix.spaghettitrees.jfr.TrunkPlacementEvent;
+import dev.arthomnix.spaghettitrees.util.RegistryUtil;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.PillarBlock;
 import net.minecraft.util.math.BlockPos;
@@ -18,17 +23,17 @@ import java.util.Random;
 import java.util.function.BiConsumer;
 
 public class BetterTrunkPlacer extends TrunkPlacer {
-    private int branchLengthModifier; // gets subtracted from the length of each new Branch (parent branch level > 0)
-    private int initialBranchLengthModifier; // gets subtracted from the length of each new Branch generated off the trunk
-    private double branchProbabilityModifier;
-    private double subBranchProbabilityDivisor;
-    private double minLeftBias;
-    private double maxLeftBias;
-    private double minUpBias;
-    private double maxUpBias;
+    protected final int branchLengthModifier; // unused: every Branch takes initialBranchLengthModifier off its sub-branches (see Branch.generate)
+    protected final int initialBranchLengthModifier; // gets subtracted from the length of each new Branch generated off the trunk
+    protected final double branchProbabilityModifier;
+    protected final double subBranchProbabilityDivisor; // unused: every Branch uses the trunk's branch probability (see Branch.getBranchProbability)
+    protected final double minLeftBias;
+    protected final double maxLeftBias;
+    protected final double minUpBias;
+    protected final double maxUpBias;
 
     public static final Codec<BetterTrunkPlacer> CODEC = RecordCodecBuilder.create(instance ->
-            fillTrunkPlacerFields(instance).apply(instance, BetterTrunkPlacer::new));
+            fillBetterTrunkPlacerFields(instance, new BetterTrunkPlacer(0, 0, 0)).apply(instance, BetterTrunkPlacer::new));
     
     public BetterTrunkPlacer(int baseHeight, int firstRandomHeight, int secondRandomHeight) {
         this(baseHeight, firstRandomHeight, secondRandomHeight, 0.75D, 2D, 0, 0, 0D, 1D, 0D, 1D);
@@ -46,6 +51,26 @@ public class BetterTrunkPlacer extends TrunkPlacer {
         this.maxUpBias = maxUpBias;
     }
 
+    // The shortest trunk getHeight can return
+    public int getMinHeight() {
+        return baseHeight;
+    }
+
+    // Serializes every constructor parameter so trees can be tuned from datapacks. The extra fields are optional and
+    // fall back to the values of the given defaults (the three-argument constructor), so older configs still decode.
+    // sub_branch_probability_divisor and branch_length_modifier are decoded but have no effect on the trees (see the fields).
+    protected static <P extends BetterTrunkPlacer> Products.P11<RecordCodecBuilder.Mu<P>, Integer, Integer, Integer, Double, Double, Integer, Integer, Double, Double, Double, Double> fillBetterTrunkPlacerFields(RecordCodecBuilder.Instance<P> instance, BetterTrunkPlacer defaults) {
+        return fillTrunkPlacerFields(instance)
+                .and(Codec.DOUBLE.optionalFieldOf("branch_probability_modifier", defaults.branchProbabilityModifier).forGetter(placer -> placer.branchProbabilityModifier))
+                .and(Codec.DOUBLE.optionalFieldOf("sub_branch_probability_divisor", defaults.subBranchProbabilityDivisor).forGetter(placer -> placer.subBranchProbabilityDivisor))
+                .and(Codec.INT.optionalFieldOf("branch_length_modifier", defaults.branchLengthModifier).forGetter(placer -> placer.branchLengthModifier))
+                .and(Codec.INT.optionalFieldOf("initial_branch_length_modifier", defaults.initialBranchLengthModifier).forGetter(placer -> placer.initialBranchLengthModifier))
+                .and(Codec.DOUBLE.optionalFieldOf("min_left_bias", defaults.minLeftBias).forGetter(placer -> placer.minLeftBias))
+                .and(Codec.DOUBLE.optionalFieldOf("max_left_bias", defaults.maxLeftBias).forGetter(placer -> placer.maxLeftBias))
+                .and(Codec.DOUBLE.optionalFieldOf("min_up_bias", defaults.minUpBias).forGetter(placer -> placer.minUpBias))
+                .and(Codec.DOUBLE.optionalFieldOf("max_up_bias", defaults.maxUpBias).forGetter(placer -> placer.maxUpBias));
+    }
+
     @Override
     protected TrunkPlacerType<?> getType() {
         return BetterTreesConfiguredFeatures.BETTER_TRUNK_PLACER;
@@ -53,6 +78,30 @@ public class BetterTrunkPlacer extends TrunkPlacer {
 
     @Override
     public List<FoliagePlacer.TreeNode> generate(TestableWorld world, BiConsumer<BlockPos, BlockState> replacer, Random random, int height, BlockPos startPos, TreeFeatureConfig config) {
+        BranchingListener listener = replacer instanceof BranchingListener branchingListener ? branchingListener : null;
+        TrunkPlacementEvent event = new TrunkPlacementEvent();
+        event.begin();
+        CountingReplacer countingReplacer = event.isEnabled() ? new CountingReplacer(replacer) : null;
+        if (countingReplacer != null) replacer = countingReplacer;
+        TreeBudgets.Complexity complexity = TreeBudgets.getComplexity(config);
+        BranchBudget budget = complexity != null ? new BranchBudget(complexity) : null;
+        Branch mainTrunk = createTrunk(world, replacer, random, height, startPos, config);
+        mainTrunk.budget = budget;
+        // Also generates sub-branches recursively
+        List<FoliagePlacer.TreeNode> nodes = mainTrunk.generate();
+        if (listener != null) listener.onBranching(mainTrunk.branchCount, mainTrunk.maxDepth);
+        if (event.shouldCommit()) {
+            event.featureId = RegistryUtil.getConfiguredFeatureId(config);
+            event.logCount = countingReplacer.getCount();
+            event.branchCount = mainTrunk.branchCount;
+            event.maxDepth = mainTrunk.maxDepth;
+            event.foliageNodeCount = nodes.size();
+            event.commit();
+        }
+        return nodes;
+    }
+
+    protected Branch createTrunk(TestableWorld world, BiConsumer<BlockPos, BlockState> replacer, Random random, int height, BlockPos startPos, TreeFeatureConfig config) {
         setToDirt(world, replacer, random, startPos.down(), config);
         // The trunk is a branch
         Branch mainTrunk = new Branch(world, replacer, random, startPos, startPos, config, Direction.UP, height, 0, 4, 0d, 0d, 0.05d, false);
@@ -63,8 +112,26 @@ public class BetterTrunkPlacer extends TrunkPlacer {
                 getAndSetState(world, replacer, random, startPos.offset(Direction.byId(i)), config, blockState -> blockState.with(PillarBlock.AXIS, Direction.byId(finalI).getAxis()));
             }
         }
-        // Also generates sub-branches recursively
-        return mainTrunk.generate();
+        return mainTrunk;
+    }
+
+    // The size limits TreeBudgets sets for one tree, and how many logs its trunk and branches have grown so far. Once either limit is reached, no more branches are started.
+    // Logs are counted per step along a branch rather than per write, so the count doesn't depend on what the world let the tree replace and the random calls made stay the same for a given seed.
+    protected static class BranchBudget {
+        private final TreeBudgets.Complexity complexity;
+        private int logs = 0;
+
+        BranchBudget(TreeBudgets.Complexity complexity) {
+            this.complexity = complexity;
+        }
+
+        void countLog() {
+            logs++;
+        }
+
+        boolean allowsBranch(int level) {
+            return level < complexity.maxBranchDepth && logs < complexity.maxLogs;
+        }
     }
 
     protected class Branch {
@@ -88,6 +155,13 @@ public class BetterTrunkPlacer extends TrunkPlacer {
         int bendLeft = 0;
         int bendUp = 0;
 
+        // statistics for this branch and all of its sub-branches, filled in by generate()
+        int branchCount = 1;
+        int maxDepth = 0;
+
+        // the tree's TreeBudgets limits (null if it has none)
+        BranchBudget budget;
+
         public Branch(TestableWorld world, BiConsumer<BlockPos, BlockState> replacer, Random random, BlockPos startPos, BlockPos rootPos, TreeFeatureConfig config, Direction direction, int length, int level, int maxLevel, double leftBias, double upBias, double bendiness, boolean nodesAllAlong) {
             this.world = world;
             this.replacer = replacer;
@@ -97,6 +171,7 @@ public class BetterTrunkPlacer extends TrunkPlacer {
             this.config = config;
             this.length = length;
             this.direction = direction;
+            this.level = level;
             this.maxLevel = maxLevel;
             this.leftBias = leftBias;
             if(this.direction.getAxis() == Direction.Axis.Y) this.upBias = this.leftBias; // If the branch is generating up or down, all directions use the leftBias
@@ -119,23 +194,26 @@ public class BetterTrunkPlacer extends TrunkPlacer {
                 if(i > 0) getAndSetState(world, replacer, random, bendPos(startPos, i - 1), config, blockState -> blockState.with(PillarBlock.AXIS, direction.getAxis()));
                 // set the block
                 getAndSetState(world, replacer, random, bendPos(startPos, i), config, blockState -> blockState.with(PillarBlock.AXIS, direction.getAxis()));
+                if (budget != null) budget.countLog();
                 // add foliage nodes
                 if(nodesAllAlong && (random.nextDouble() < 0.75 || i == length - 1))
                     list.add(new FoliagePlacer.TreeNode(bendPos(startPos, i).up(), 0, false));
                 else if(i == (length - 1) && level == 0) // generate more leaves at the top of the trunk
                     list.add(new FoliagePlacer.TreeNode(bendPos(startPos, i).up(), 2, false));
                 updateBend();
-                // generates a sub-branch
-                if ((random.nextDouble() < getBranchProbability(i, length, branchProbabilityModifier, clampBelow)) && (level < maxLevel)) {
-                    int newLength = length - (random.nextInt(2) + 1);
-                    if(level == 0) newLength = newLength - initialBranchLengthModifier;
-                    else newLength = newLength - branchLengthModifier;
+                // generates a sub-branch. level wasn't stored until branch budgets needed it, so every branch has always picked its
+                // sub-branches as if it grew straight off the trunk; they still do, so trees keep the shapes they have always had
+                if ((random.nextDouble() < getBranchProbability(i, length, branchProbabilityModifier, clampBelow)) && (maxLevel > 0) && (budget == null || budget.allowsBranch(level))) {
+                    int newLength = length - (random.nextInt(2) + 1) - initialBranchLengthModifier;
                     Direction newDirection = chooseFromAllowedDirections();
                     BlockPos newEndPos = bendPos(startPos, i).offset(newDirection, newLength);
                     int newBranchHeight = newEndPos.getY() - rootPos.getY();
                     if (newLength > 0 && (newEndPos.getManhattanDistance(rootPos) < (11 + newBranchHeight))) { // restrict distance branches can be from the trunk
                         Branch branch = new Branch(world, replacer, random, bendPos(startPos, i), rootPos, config, newDirection, newLength, level + 1, maxLevel, getDoubleInRange(minLeftBias, maxLeftBias), getDoubleInRange(minUpBias, maxUpBias), (0.6 * random.nextDouble()) + 0.4,true);
+                        branch.budget = budget;
                         list.addAll(branch.generate());
+                        branchCount += branch.branchCount;
+                        maxDepth = Math.max(maxDepth, branch.maxDepth + 1);
                     }
                 }
             }
@@ -184,12 +262,10 @@ public class BetterTrunkPlacer extends TrunkPlacer {
         }
         
         private double getBranchProbability(int height, int maxHeight, double modifier, int clampBelow) {
-            // Get the probability of a branch generating at a particular point along the branch. If the branch is level 0, uses a normal distribution, else just uses half the branch probability modifier
+            // Get the probability of a branch generating at a particular point along the branch, using a normal distribution
             if(height < clampBelow) return 0D;
-            if(this.level == 0) {
-                double normalizedHeight = (double) height / maxHeight;
-                return gaussian(normalizedHeight, modifier, 0.75D, 0.2D);
-            } else return modifier / subBranchProbabilityDivisor;
+            double normalizedHeight = (double) height / maxHeight;
+            return gaussian(normalizedHeight, modifier, 0.75D, 0.2D);
         }
 
         private double gaussian(double x, double a, double b, double c) {
@@ -0,0 +1,12 @@
+package dev.arthomnix.spaghettitrees.tree;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+
+import java.util.function.BiConsumer;
+
+// A trunk replacer that also wants to know how BetterTrunkPlacer branched the trunk it placed, e.g. for TreeSimulator's statistics.
+// Called once per tree, after all of the trunk's logs have been written. Other trunk placers never call it.
+public interface BranchingListener extends BiConsumer<BlockPos, BlockState> {
+    void onBranching(int branchCount, int maxDepth);
+}
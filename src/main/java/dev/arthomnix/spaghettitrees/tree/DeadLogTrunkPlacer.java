@@ -17,10 +17,14 @@ import java.util.function.BiConsumer;
 
 public class DeadLogTrunkPlacer extends BetterTrunkPlacer {
     public static final Codec<DeadLogTrunkPlacer> CODEC = RecordCodecBuilder.create(instance ->
-            fillTrunkPlacerFields(instance).apply(instance, DeadLogTrunkPlacer::new));
+            fillBetterTrunkPlacerFields(instance, new DeadLogTrunkPlacer(0, 0, 0)).apply(instance, DeadLogTrunkPlacer::new));
 
     public DeadLogTrunkPlacer(int baseHeight, int firstRandomHeight, int secondRandomHeight) {
-        super(baseHeight, firstRandomHeight, secondRandomHeight, 0.25D, 2D, 2, 6, 0D, 1D, 0D, 1D);
+        this(baseHeight, firstRandomHeight, secondRandomHeight, 0.25D, 2D, 2, 6, 0D, 1D, 0D, 1D);
+    }
+
+    public DeadLogTrunkPlacer(int baseHeight, int firstRandomHeight, int secondRandomHeight, double branchProbabilityModifier, double subBranchProbabilityDivisor, int branchLengthModifier, int initialBranchLengthModifier, double minLeftBias, double maxLeftBias, double minUpBias, double maxUpBias) {
+        super(baseHeight, firstRandomHeight, secondRandomHeight, branchProbabilityModifier, subBranchProbabilityDivisor, branchLengthModifier, initialBranchLengthModifier, minLeftBias, maxLeftBias, minUpBias, maxUpBias);
     }
 
     @Override
@@ -28,11 +32,16 @@ public class DeadLogTrunkPlacer extends BetterTrunkPlacer {
         return BetterTreesConfiguredFeatures.DEAD_LOG_TRUNK_PLACER;
     }
 
+    @Override
     public List<FoliagePlacer.TreeNode> generate(TestableWorld world, BiConsumer<BlockPos, BlockState> replacer, Random random, int height, BlockPos startPos, TreeFeatureConfig config) {
+        super.generate(world, replacer, random, height, startPos, config);
+        return ImmutableList.of();
+    }
+
+    @Override
+    protected Branch createTrunk(TestableWorld world, BiConsumer<BlockPos, BlockState> replacer, Random random, int height, BlockPos startPos, TreeFeatureConfig config) {
         int directionId = random.nextInt(5) + 2;
         Direction direction = Direction.byId(directionId);
-        Branch deadLog = new Branch(world, replacer, random, startPos, startPos, config, direction, height, 0, 1, 0D, 0D, 0.1D, false);
-        deadLog.generate();
-        return ImmutableList.of();
+        return new Branch(world, replacer, random, startPos, startPos, config, direction, height, 0, 1, 0D, 0D, 0.1D, false);
     }
 }
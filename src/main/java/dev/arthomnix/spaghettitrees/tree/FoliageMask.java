@@ -0,0 +1,102 @@
+package dev.arthomnix.spaghettitrees.tree;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.TestableWorld;
+import net.minecraft.world.gen.feature.TreeFeature;
+import net.minecraft.world.gen.feature.TreeFeatureConfig;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiConsumer;
+
+/*
+
+    FoliagePlacer.generateSquare tests every cell of a (2r+1)x(2r+1) square against the placer's leaf shape for every layer of every node.
+    Instead, the first time a placer generates a layer of some radius, height and trunk size, this works out once which cells are always leaves, which never are, and which depend on the random (e.g. bush corners), and keeps the list of cells that can be leaves.
+    Generating a layer then only walks that list, drawing from the random for the random cells only, in the same order as generateSquare, so the trees generated are exactly the same.
+
+*/
+public class FoliageMask {
+    // Same as FoliagePlacer.isPositionInvalid, which is protected, so each placer hands over its own
+    @FunctionalInterface
+    public interface LeafShape {
+        boolean isPositionInvalid(Random random, int dx, int y, int dz, int radius, boolean giantTrunk);
+    }
+
+    // Each cell is packed into an int: 12 bits each for dx and dz (offset so they are never negative), and a flag for cells that need the random
+    private static final int OFFSET = 2048;
+    private static final int RANDOM_CELL = 1 << 24;
+    // masks are cached for every radius and layer height spaghettitrees foliage uses, anything outside this is built every time
+    private static final int MAX_CACHED_RADIUS = 15;
+    private static final int Y_OFFSET = 16;
+
+    private final LeafShape shape;
+    // indexed by [giantTrunk][radius].get(y + Y_OFFSET), filled in as each mask is first needed
+    private final AtomicReferenceArray<int[]>[][] masks;
+
+    @SuppressWarnings("unchecked")
+    public FoliageMask(LeafShape shape) {
+        this.shape = shape;
+        this.masks = new AtomicReferenceArray[2][MAX_CACHED_RADIUS + 1];
+        for (AtomicReferenceArray<int[]>[] byRadius : masks) {
+            for (int radius = 0; radius <= MAX_CACHED_RADIUS; radius++) byRadius[radius] = new AtomicReferenceArray<>(2 * Y_OFFSET);
+        }
+    }
+
+    // Equivalent to FoliagePlacer.generateSquare
+    public void generateSquare(TestableWorld world, BiConsumer<BlockPos, BlockState> replacer, Random random, TreeFeatureConfig config, BlockPos centerPos, int radius, int y, boolean giantTrunk) {
+        int[] mask = getMask(radius, y, giantTrunk);
+        BlockPos.Mutable mutable = new BlockPos.Mutable();
+        for (int cell : mask) {
+            int dx = (cell >> 12 & 0xfff) - OFFSET;
+            int dz = (cell & 0xfff) - OFFSET;
+            if ((cell & RANDOM_CELL) != 0 && shape.isPositionInvalid(random, dx, y, dz, radius, giantTrunk)) continue;
+            mutable.set(centerPos, dx, y, dz);
+            if (!TreeFeature.canReplace(world, mutable)) continue;
+            replacer.accept(mutable, config.foliageProvider.getBlockState(random, mutable));
+        }
+    }
+
+    private int[] getMask(int radius, int y, boolean giantTrunk) {
+        if (radius < 0 || radius > MAX_CACHED_RADIUS || y < -Y_OFFSET || y >= Y_OFFSET) return buildMask(radius, y, giantTrunk);
+        AtomicReferenceArray<int[]> byY = masks[giantTrunk ? 1 : 0][radius];
+        int[] mask = byY.get(y + Y_OFFSET);
+        if (mask == null) {
+            // two threads may build the same mask at once, which is harmless
+            mask = buildMask(radius, y, giantTrunk);
+            byY.set(y + Y_OFFSET, mask);
+        }
+        return mask;
+    }
+
+    private int[] buildMask(int radius, int y, boolean giantTrunk) {
+        if (radius >= OFFSET - 1) throw new IllegalArgumentException("Foliage radius " + radius + " is too large");
+        int end = radius + (giantTrunk ? 1 : 0);
+        int[] cells = new int[Math.max(0, (radius + end + 1) * (radius + end + 1))];
+        int count = 0;
+        ProbeRandom probe = new ProbeRandom();
+        // same order as generateSquare
+        for (int dx = -radius; dx <= end; dx++) {
+            for (int dz = -radius; dz <= end; dz++) {
+                probe.used = false;
+                boolean invalid = shape.isPositionInvalid(probe, dx, y, dz, radius, giantTrunk);
+                if (probe.used) cells[count++] = (dx + OFFSET) << 12 | (dz + OFFSET) | RANDOM_CELL;
+                else if (!invalid) cells[count++] = (dx + OFFSET) << 12 | (dz + OFFSET);
+            }
+        }
+        return Arrays.copyOf(cells, count);
+    }
+
+    // Notices whether a shape test used the random at all
+    private static class ProbeRandom extends Random {
+        boolean used = false;
+
+        @Override
+        protected int next(int bits) {
+            used = true;
+            return 0;
+        }
+    }
+}
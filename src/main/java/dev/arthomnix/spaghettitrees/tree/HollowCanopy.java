@@ -0,0 +1,136 @@
+package dev.arthomnix.spaghettitrees.tree;
+
+import dev.arthomnix.spaghettitrees.util.SpaghettiTreesMetrics;
+import it.unimi.dsi.fastutil.longs.*;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.LeavesBlock;
+import net.minecraft.tag.BlockTags;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/*
+
+    Holds back one tree's leaves until all of its foliage has been generated, then only places the leaves that can be seen or that other leaves need to stay within decay distance of a log.
+    A leaf is hidden if all six of its neighbours are leaves or logs of the same tree. Hidden leaves are left out unless they are on the shortest path from a visible leaf to a log and that leaf would otherwise be more than 6 blocks from a log.
+
+*/
+public class HollowCanopy {
+    private static final int MAX_DISTANCE = 6; // leaves further than this from a log decay
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    private static final LongAdder TREES = SpaghettiTreesMetrics.counter("hollow_canopy.trees");
+    private static final LongAdder LEAVES_PLACED = SpaghettiTreesMetrics.counter("hollow_canopy.leaves_placed");
+    private static final LongAdder LEAVES_OMITTED = SpaghettiTreesMetrics.counter("hollow_canopy.leaves_omitted");
+
+    private final BiConsumer<BlockPos, BlockState> trunkReplacer;
+    private final BiConsumer<BlockPos, BlockState> foliageReplacer;
+    private final LongSet trunk = new LongOpenHashSet(); // everything the trunk placer wrote, including dirt under the tree
+    private final LongSet logs = new LongOpenHashSet();
+    private final Long2ObjectMap<BlockState> leaves = new Long2ObjectLinkedOpenHashMap<>();
+
+    public HollowCanopy(BiConsumer<BlockPos, BlockState> trunkReplacer, BiConsumer<BlockPos, BlockState> foliageReplacer) {
+        this.trunkReplacer = trunkReplacer;
+        this.foliageReplacer = foliageReplacer;
+    }
+
+    public BiConsumer<BlockPos, BlockState> getTrunkReplacer() {
+        return (pos, state) -> {
+            trunk.add(pos.asLong());
+            if (state.isIn(BlockTags.LOGS)) logs.add(pos.asLong());
+            trunkReplacer.accept(pos, state);
+        };
+    }
+
+    // Anything that isn't a leaf (e.g. the air "leaves" of dead trees) is placed straight away
+    public BiConsumer<BlockPos, BlockState> getFoliageReplacer() {
+        return (pos, state) -> {
+            if (state.getBlock() instanceof LeavesBlock) leaves.put(pos.asLong(), state);
+            else foliageReplacer.accept(pos, state);
+        };
+    }
+
+    // Places the leaves that are kept, in the order they were generated
+    public void placeLeaves() {
+        LongSet kept = getKeptLeaves();
+        BlockPos.Mutable pos = new BlockPos.Mutable();
+        for (Long2ObjectMap.Entry<BlockState> entry : leaves.long2ObjectEntrySet()) {
+            if (kept.contains(entry.getLongKey())) foliageReplacer.accept(pos.set(entry.getLongKey()), entry.getValue());
+        }
+        TREES.increment();
+        LEAVES_PLACED.add(kept.size());
+        LEAVES_OMITTED.add(leaves.size() - kept.size());
+    }
+
+    // The leaves placeLeaves would place, without placing them
+    public LongSet getKeptLeaves() {
+        LongSet kept = new LongOpenHashSet(leaves.size());
+        LongSet hidden = new LongOpenHashSet();
+        for (long leaf : leaves.keySet()) {
+            if (isHidden(leaf)) hidden.add(leaf);
+            else kept.add(leaf);
+        }
+        if (hidden.isEmpty()) return kept;
+
+        Long2IntMap fullDistances = getDistances(leaves.keySet());
+        Long2IntMap keptDistances = getDistances(kept);
+        for (long leaf : new LongArrayList(kept)) {
+            int fullDistance = fullDistances.get(leaf);
+            if (fullDistance > MAX_DISTANCE || keptDistances.get(leaf) <= MAX_DISTANCE) continue;
+            // walk back towards the logs along the full canopy, keeping the hidden leaves on the way
+            long current = leaf;
+            while (fullDistances.get(current) > 1) {
+                int nextDistance = fullDistances.get(current) - 1;
+                for (Direction direction : DIRECTIONS) {
+                    long neighbour = BlockPos.offset(current, direction);
+                    if (fullDistances.get(neighbour) == nextDistance) {
+                        current = neighbour;
+                        break;
+                    }
+                }
+                kept.add(current);
+            }
+        }
+        return kept;
+    }
+
+    private boolean isHidden(long leaf) {
+        for (Direction direction : DIRECTIONS) {
+            long neighbour = BlockPos.offset(leaf, direction);
+            if (!leaves.containsKey(neighbour) && !trunk.contains(neighbour)) return false;
+        }
+        return true;
+    }
+
+    // Breadth-first distance from the logs through the given leaves, the same way leaf decay counts it. Leaves that aren't reached get Integer.MAX_VALUE.
+    private Long2IntMap getDistances(LongSet through) {
+        Long2IntMap distances = new Long2IntOpenHashMap(through.size());
+        distances.defaultReturnValue(Integer.MAX_VALUE);
+        LongArrayList frontier = new LongArrayList();
+        for (long log : logs) {
+            for (Direction direction : DIRECTIONS) {
+                long neighbour = BlockPos.offset(log, direction);
+                if (through.contains(neighbour) && !distances.containsKey(neighbour)) {
+                    distances.put(neighbour, 1);
+                    frontier.add(neighbour);
+                }
+            }
+        }
+        for (int distance = 2; distance <= MAX_DISTANCE + 1 && !frontier.isEmpty(); distance++) {
+            LongArrayList next = new LongArrayList();
+            for (long leaf : frontier) {
+                for (Direction direction : DIRECTIONS) {
+                    long neighbour = BlockPos.offset(leaf, direction);
+                    if (through.contains(neighbour) && !distances.containsKey(neighbour)) {
+                        distances.put(neighbour, distance);
+                        next.add(neighbour);
+                    }
+                }
+            }
+            frontier = next;
+        }
+        return distances;
+    }
+}
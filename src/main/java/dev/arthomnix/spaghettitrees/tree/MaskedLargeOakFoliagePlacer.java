@@ -0,0 +1,36 @@
+package dev.arthomnix.spaghettitrees.tree;
+
+import com.mojang.serialization.Codec;
+import com.mojang.serialization.codecs.RecordCodecBuilder;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.intprovider.IntProvider;
+import net.minecraft.world.TestableWorld;
+import net.minecraft.world.gen.feature.TreeFeatureConfig;
+import net.minecraft.world.gen.foliage.FoliagePlacerType;
+import net.minecraft.world.gen.foliage.LargeOakFoliagePlacer;
+
+import java.util.Random;
+import java.util.function.BiConsumer;
+
+// A LargeOakFoliagePlacer that generates each layer from a FoliageMask. Places exactly the same leaves.
+public class MaskedLargeOakFoliagePlacer extends LargeOakFoliagePlacer {
+    public static final Codec<MaskedLargeOakFoliagePlacer> CODEC = RecordCodecBuilder.create(instance ->
+            createCodec(instance).apply(instance, MaskedLargeOakFoliagePlacer::new));
+
+    private final FoliageMask mask = new FoliageMask(this::isPositionInvalid);
+
+    public MaskedLargeOakFoliagePlacer(IntProvider radius, IntProvider offset, int height) {
+        super(radius, offset, height);
+    }
+
+    @Override
+    protected FoliagePlacerType<?> getType() {
+        return BetterTreesConfiguredFeatures.MASKED_LARGE_OAK_FOLIAGE_PLACER;
+    }
+
+    @Override
+    protected void generateSquare(TestableWorld world, BiConsumer<BlockPos, BlockState> replacer, Random random, TreeFeatureConfig config, BlockPos centerPos, int radius, int y, boolean giantTrunk) {
+        mask.generateSquare(world, replacer, random, config, centerPos, radius, y, giantTrunk);
+    }
+}
@@ -0,0 +1,43 @@
+package dev.arthomnix.spaghettitrees.util;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Thread time spent placing features, split into spaghettitrees trees and everything else, and time spent in the light engine. Used by /spaghettitrees pregen and shown in /spaghettitrees stats.
+// all_features_nanos / chunks is the mean time a chunk spends in the features stage.
+public class FeatureTiming {
+    public static final LongAdder ALL_FEATURES_NANOS = SpaghettiTreesMetrics.counter("feature_time.all_features_nanos");
+    public static final LongAdder CHUNKS = SpaghettiTreesMetrics.counter("feature_time.chunks");
+    public static final LongAdder SPAGHETTITREES_NANOS = SpaghettiTreesMetrics.counter("feature_time.spaghettitrees_trees_nanos");
+    public static final LongAdder LIGHT_NANOS = SpaghettiTreesMetrics.counter("light_time.light_updates_nanos");
+
+    // start times of the feature pass, the tree being generated and the light updates being run on this thread
+    private static final ThreadLocal<long[]> START = ThreadLocal.withInitial(() -> new long[3]);
+
+    public static void startFeatures() {
+        START.get()[0] = System.nanoTime();
+    }
+
+    public static void endFeatures() {
+        ALL_FEATURES_NANOS.add(System.nanoTime() - START.get()[0]);
+        CHUNKS.increment();
+    }
+
+    public static void startTree() {
+        START.get()[1] = System.nanoTime();
+    }
+
+    // Returns how long the tree took
+    public static long endTree() {
+        long nanos = System.nanoTime() - START.get()[1];
+        SPAGHETTITREES_NANOS.add(nanos);
+        return nanos;
+    }
+
+    public static void startLight() {
+        START.get()[2] = System.nanoTime();
+    }
+
+    public static void endLight() {
+        LIGHT_NANOS.add(System.nanoTime() - START.get()[2]);
+    }
+}
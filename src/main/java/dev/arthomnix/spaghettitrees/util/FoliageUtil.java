@@ -0,0 +1,34 @@
+package dev.arthomnix.spaghettitrees.util;
+
+import dev.arthomnix.spaghettitrees.jfr.CountingReplacer;
+import dev.arthomnix.spaghettitrees.jfr.FoliagePlacementEvent;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.TestableWorld;
+import net.minecraft.world.gen.feature.TreeFeatureConfig;
+import net.minecraft.world.gen.foliage.FoliagePlacer;
+
+import java.util.Random;
+import java.util.function.BiConsumer;
+
+public class FoliageUtil {
+    // generate a random height and radius for every foliage node rather than every tree
+    public static void generateWithRandomizedFoliageRadius(FoliagePlacer placer, TestableWorld world, BiConsumer<BlockPos, BlockState> replacer, Random random, TreeFeatureConfig config, int trunkHeight, FoliagePlacer.TreeNode treeNode) {
+        FoliagePlacementEvent event = new FoliagePlacementEvent();
+        event.begin();
+        CountingReplacer countingReplacer = event.isEnabled() ? new CountingReplacer(replacer) : null;
+        int height = config.trunkPlacer.getHeight(random);
+        int randomHeight = placer.getRandomHeight(random, height, config);
+        int baseHeight = height - randomHeight;
+        int randomRadius = placer.getRandomRadius(random, baseHeight);
+        placer.generate(world, countingReplacer != null ? countingReplacer : replacer, random, config, trunkHeight, treeNode, randomHeight, randomRadius);
+        if (event.shouldCommit()) {
+            event.featureId = RegistryUtil.getConfiguredFeatureId(config);
+            event.foliagePlacer = placer.getClass().getSimpleName();
+            event.leafCount = countingReplacer.getCount();
+            event.radius = randomRadius + treeNode.getFoliageRadius();
+            event.height = randomHeight;
+            event.commit();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package dev.arthomnix.spaghettitrees.util;
 
+import dev.arthomnix.spaghettitrees.config.TreeBudgets;
 import net.minecraft.util.Identifier;
 import net.minecraft.util.registry.BuiltinRegistries;
 import net.minecraft.util.registry.RegistryEntry;
@@ -8,12 +9,30 @@ import net.minecraft.world.gen.feature.Feature;
 import net.minecraft.world.gen.feature.FeatureConfig;
 import net.minecraft.world.gen.feature.PlacedFeature;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 public class RegistryUtil {
+    // Feature configs don't override equals, so this is effectively an identity map from each config to its id
+    private static final Map<FeatureConfig, Identifier> CONFIGURED_FEATURE_IDS = new ConcurrentHashMap<>();
+
     public static RegistryEntry<PlacedFeature> registerPlacedFeature(Identifier id, PlacedFeature feature) {
-        return BuiltinRegistries.add(BuiltinRegistries.PLACED_FEATURE, id, feature);
+        return BuiltinRegistries.add(BuiltinRegistries.PLACED_FEATURE, id, TreeBudgets.applyDensity(id, feature));
     }
 
     public static <FC extends FeatureConfig, F extends Feature<FC>> RegistryEntry<ConfiguredFeature<?, ?>> registerConfiguredFeature(Identifier id, F feature, FC config) {
+        CONFIGURED_FEATURE_IDS.put(config, id);
         return BuiltinRegistries.add(BuiltinRegistries.CONFIGURED_FEATURE, id, new ConfiguredFeature<>(feature, config));
     }
+
+    // Returns the id a config was registered with, or "unknown" for configs that didn't come from spaghettitrees (e.g. datapack overrides)
+    public static String getConfiguredFeatureId(FeatureConfig config) {
+        Identifier id = getConfiguredFeatureIdentifier(config);
+        return id == null ? "unknown" : id.toString();
+    }
+
+    // Same as getConfiguredFeatureId, but null for configs that didn't come from spaghettitrees
+    public static Identifier getConfiguredFeatureIdentifier(FeatureConfig config) {
+        return CONFIGURED_FEATURE_IDS.get(config);
+    }
 }
@@ -0,0 +1,25 @@
+package dev.arthomnix.spaghettitrees.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Counters shown by /spaghettitrees stats. LongAdder so that worldgen threads can count without contending.
+public class SpaghettiTreesMetrics {
+    private static final Map<String, LongAdder> COUNTERS = new ConcurrentSkipListMap<>();
+
+    public static LongAdder counter(String name) {
+        return COUNTERS.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    public static String report() {
+        if (COUNTERS.isEmpty()) return "No SpaghettiTrees metrics recorded yet";
+        StringBuilder builder = new StringBuilder("SpaghettiTrees metrics:");
+        COUNTERS.forEach((name, counter) -> builder.append("\n  ").append(name).append(": ").append(counter.sum()));
+        return builder.toString();
+    }
+
+    public static void reset() {
+        COUNTERS.values().forEach(LongAdder::reset);
+    }
+}
@@ -0,0 +1,60 @@
+package dev.arthomnix.spaghettitrees.util;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+
+    Times the work spaghettitrees does while the game starts, mostly the static initialisers that build and register its features during biome bootstrap.
+    Sections can nest (initialising the placed features initialises the configured features), so each section's time excludes the sections inside it.
+    BootstrapMixin logs the totals when bootstrap finishes; anything that only starts after that is logged as it finishes.
+
+*/
+public class StartupTimer {
+    private static final Logger LOGGER = LogManager.getLogger("SpaghettiTrees");
+
+    // class initialisation is single threaded, but the lock keeps a section finishing late from racing the report
+    private static final Object LOCK = new Object();
+    private static final Deque<long[]> OPEN = new ArrayDeque<>();
+    private static final Deque<String> OPEN_NAMES = new ArrayDeque<>();
+    private static final Map<String, Long> SELF_NANOS = new LinkedHashMap<>();
+    private static boolean reported = false;
+
+    public static void begin(String name) {
+        synchronized (LOCK) {
+            // {start, time spent in nested sections}
+            OPEN.push(new long[] {System.nanoTime(), 0});
+            OPEN_NAMES.push(name);
+        }
+    }
+
+    public static void end() {
+        synchronized (LOCK) {
+            long[] section = OPEN.pop();
+            String name = OPEN_NAMES.pop();
+            long total = System.nanoTime() - section[0];
+            long self = total - section[1];
+            if (!OPEN.isEmpty()) OPEN.peek()[1] += total;
+            SELF_NANOS.merge(name, self, Long::sum);
+            if (reported) LOGGER.info("SpaghettiTrees {} took {} ms (after bootstrap)", name, String.format("%.1f", self / 1e6));
+        }
+    }
+
+    public static void report(long bootstrapNanos) {
+        synchronized (LOCK) {
+            if (reported) return;
+            reported = true;
+            long total = SELF_NANOS.values().stream().mapToLong(Long::longValue).sum();
+            StringBuilder sections = new StringBuilder();
+            SELF_NANOS.forEach((name, nanos) -> sections.append(sections.length() == 0 ? "" : ", ").append(name).append(' ').append(String.format("%.1f", nanos / 1e6)).append(" ms"));
+            LOGGER.info("SpaghettiTrees took {} ms of {} ms bootstrap ({}%): {}",
+                    String.format("%.1f", total / 1e6), String.format("%.1f", bootstrapNanos / 1e6),
+                    String.format("%.1f", bootstrapNanos > 0 ? 100.0 * total / bootstrapNanos : 0), sections.length() == 0 ? "nothing initialised yet" : sections);
+        }
+    }
+}